@@ -0,0 +1,66 @@
+package benchmarks;
+
+import ascii_art.AsciiArtAlgorithm;
+import ascii_output.ConsoleAsciiOutput;
+import ascii_output.HtmlAsciiOutput;
+import image_char_matching.SubImgCharMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Writing a frame of ASCII art through the console and HTML outputs.
+ * <p>
+ * The frame is the ASCII art of a synthetic image with four pixels per tile side, so the
+ * chars are distributed as in real use. The console output writes straight to the standard
+ * output descriptor; run this benchmark with its output redirected, for example
+ * {@code java -jar benchmarks.jar AsciiOutputBenchmark > /dev/null}, to keep the terminal
+ * out of the measurement.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+@State(Scope.Benchmark)
+public class AsciiOutputBenchmark extends BenchmarkDefaults {
+	private static final int PIXELS_PER_TILE = 4;
+	private static final char[] CHARSET = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+	private static final String FONT_NAME = "Courier New";
+	private static final String FILE_PREFIX = "output";
+	private static final String HTML_SUFFIX = ".html";
+
+	@Param({"128", "512", "2048"})
+	public int res;
+
+	private char[][] chars;
+	private File htmlFile;
+
+	@Setup
+	public void setUp() throws IOException {
+		int imageSize = res * PIXELS_PER_TILE;
+		chars = new AsciiArtAlgorithm(SyntheticImages.create(imageSize, imageSize), res,
+				new SubImgCharMatcher(CHARSET)).run();
+		htmlFile = Files.createTempFile(FILE_PREFIX, HTML_SUFFIX).toFile();
+	}
+
+	@TearDown
+	public void tearDown() {
+		htmlFile.delete();
+	}
+
+	@Benchmark
+	public void console() {
+		new ConsoleAsciiOutput().out(chars);
+	}
+
+	@Benchmark
+	public void html() {
+		new HtmlAsciiOutput(htmlFile.getPath(), FONT_NAME).out(chars);
+	}
+}
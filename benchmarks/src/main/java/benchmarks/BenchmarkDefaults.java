@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JMH settings shared by every benchmark, which inherit them from this class.
+ * <p>
+ * Each benchmark runs in a forked JVM with room for the largest synthetic images, headless
+ * AWT for glyph rendering, and the Vector API module so the vectorized luminance kernel is
+ * used as it would be in production.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true",
+		"--add-modules", "jdk.incubator.vector"})
+public abstract class BenchmarkDefaults {
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import image_char_matching.RoundingMode;
+import image_char_matching.SubImgCharMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a {@link SubImgCharMatcher} and looking up chars, across charset sizes and
+ * rounding modes.
+ * <p>
+ * Glyph brightness is cached per JVM, so construction is measured warm, as it is for every
+ * matcher but the first. Lookups are timed per brightness over a fixed random sample.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CharMatcherBenchmark extends BenchmarkDefaults {
+	private static final char FIRST_CHAR = ' ';
+	private static final int LOOKUPS = 4096;
+	private static final long SEED = 0x5EEDL;
+
+	@Param({"10", "32", "95"})
+	public int charsetSize;
+
+	@Param({"NEAREST", "UP", "DOWN"})
+	public RoundingMode roundingMode;
+
+	private char[] charset;
+	private SubImgCharMatcher matcher;
+	private double[] brightness;
+
+	@Setup
+	public void setUp() {
+		charset = new char[charsetSize];
+		for (int i = 0; i < charsetSize; i++) {
+			charset[i] = (char) (FIRST_CHAR + i);
+		}
+		matcher = new SubImgCharMatcher(charset);
+		matcher.setRoundingMode(roundingMode);
+		Random random = new Random(SEED);
+		brightness = new double[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			brightness[i] = random.nextDouble();
+		}
+	}
+
+	@Benchmark
+	public SubImgCharMatcher construct() {
+		SubImgCharMatcher newMatcher = new SubImgCharMatcher(charset);
+		newMatcher.setRoundingMode(roundingMode);
+		return newMatcher;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void lookup(Blackhole blackhole) {
+		for (double value : brightness) {
+			blackhole.consume(matcher.getCharByImageBrightness(value));
+		}
+	}
+}
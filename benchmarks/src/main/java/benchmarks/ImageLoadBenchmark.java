@@ -0,0 +1,121 @@
+package benchmarks;
+
+import image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Moving images between files and {@link Image}, at the sizes of common camera sensors.
+ * <p>
+ * {@code load} decodes a file into an {@link Image}. ImageIO decodes both PNG and JPEG photos
+ * without alpha into {@code TYPE_3BYTE_BGR}, so it measures the decoder plus the 3BYTE_BGR
+ * copy. {@code convert} copies an already decoded image, isolating the {@code TYPE_INT_ARGB}
+ * and {@code TYPE_3BYTE_BGR} fast paths from decoding. {@code save} writes an {@link Image}
+ * through {@link Image#saveImage}, which encodes a JPEG.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class ImageLoadBenchmark extends BenchmarkDefaults {
+	private static final double PIXELS_PER_MEGAPIXEL = 1e6;
+	private static final int ASPECT_WIDTH = 4;
+	private static final int ASPECT_HEIGHT = 3;
+	private static final String FILE_PREFIX = "saved";
+	private static final String SAVED_SUFFIX = ".jpeg";
+
+	/**
+	 * An image size in megapixels, with the 4:3 aspect ratio of most camera sensors.
+	 */
+	@State(Scope.Benchmark)
+	public static class Size {
+		@Param({"1", "12", "48"})
+		public int megapixels;
+
+		int width() {
+			return (int) Math.round(Math.sqrt(megapixels * PIXELS_PER_MEGAPIXEL *
+					ASPECT_WIDTH / ASPECT_HEIGHT));
+		}
+
+		int height() {
+			return width() * ASPECT_HEIGHT / ASPECT_WIDTH;
+		}
+	}
+
+	/**
+	 * A synthetic image encoded to a file.
+	 */
+	@State(Scope.Benchmark)
+	public static class EncodedImage extends Size {
+		@Param({"png", "jpeg"})
+		public String format;
+
+		private String path;
+
+		@Setup
+		public void setUp() throws IOException {
+			path = SyntheticImages.write(width(), height(), format).getPath();
+		}
+	}
+
+	/**
+	 * A synthetic image already decoded into a {@link BufferedImage}.
+	 */
+	@State(Scope.Benchmark)
+	public static class DecodedImage extends Size {
+		@Param({"INT_ARGB", "3BYTE_BGR"})
+		public String type;
+
+		private BufferedImage image;
+
+		@Setup
+		public void setUp() {
+			image = SyntheticImages.createBuffered(width(), height(), type.equals("INT_ARGB") ?
+					BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_3BYTE_BGR);
+		}
+	}
+
+	/**
+	 * A synthetic {@link Image} and the file name it is saved under.
+	 */
+	@State(Scope.Benchmark)
+	public static class SavedImage extends Size {
+		private Image image;
+		private File base;
+
+		@Setup
+		public void setUp() throws IOException {
+			image = SyntheticImages.create(width(), height());
+			base = Files.createTempFile(FILE_PREFIX, "").toFile();
+		}
+
+		@TearDown
+		public void tearDown() {
+			base.delete();
+			new File(base.getPath() + SAVED_SUFFIX).delete();
+		}
+	}
+
+	@Benchmark
+	public Image load(EncodedImage encoded) throws IOException {
+		return new Image(encoded.path);
+	}
+
+	@Benchmark
+	public Image convert(DecodedImage decoded) {
+		return new Image(decoded.image);
+	}
+
+	@Benchmark
+	public void save(SavedImage saved) {
+		saved.image.saveImage(saved.base.getPath());
+	}
+}
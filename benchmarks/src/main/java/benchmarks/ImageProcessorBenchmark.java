@@ -0,0 +1,73 @@
+package benchmarks;
+
+import image.BrightnessPyramid;
+import image.Image;
+import image.ImageProcessor;
+import image.ImageTile;
+import image.IntegralImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Padding, splitting and tile brightness over synthetic images.
+ * <p>
+ * Padding a power-of-two image is a no-op, so the padding benchmarks use an image three
+ * quarters of {@code size} on each side, which pads up to {@code size}. The rest work on the
+ * padded {@code size x size} image. {@link #integralTileBrightness} is the path the shell
+ * actually takes, for comparison with splitting and averaging every tile.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+@State(Scope.Benchmark)
+public class ImageProcessorBenchmark extends BenchmarkDefaults {
+	private static final int UNPADDED_NUMERATOR = 3;
+	private static final int UNPADDED_DENOMINATOR = 4;
+
+	@Param({"256", "1024", "4096", "8192"})
+	public int size;
+
+	@Param({"32", "256"})
+	public int tilesPerRow;
+
+	private Image unpaddedImage;
+	private Image paddedImage;
+	private ImageTile[][] tiles;
+
+	@Setup
+	public void setUp() {
+		int unpaddedSize = size * UNPADDED_NUMERATOR / UNPADDED_DENOMINATOR;
+		unpaddedImage = SyntheticImages.create(unpaddedSize, unpaddedSize);
+		paddedImage = ImageProcessor.padToPowerOfTwo(unpaddedImage);
+		tiles = ImageProcessor.splitImage(paddedImage, tilesPerRow);
+	}
+
+	@Benchmark
+	public Image padToPowerOfTwo() {
+		return ImageProcessor.padToPowerOfTwo(unpaddedImage);
+	}
+
+	@Benchmark
+	public ImageTile[][] splitImage() {
+		return ImageProcessor.splitImage(paddedImage, tilesPerRow);
+	}
+
+	@Benchmark
+	public void computeAverageBrightness(Blackhole blackhole) {
+		for (ImageTile[] row : tiles) {
+			for (ImageTile tile : row) {
+				blackhole.consume(ImageProcessor.computeAverageBrightness(tile));
+			}
+		}
+	}
+
+	@Benchmark
+	public double[] integralTileBrightness() {
+		return new BrightnessPyramid(new IntegralImage(ImageProcessor.padVirtually(unpaddedImage)))
+				.getTileBrightness(tilesPerRow);
+	}
+}
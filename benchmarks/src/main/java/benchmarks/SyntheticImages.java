@@ -0,0 +1,115 @@
+package benchmarks;
+
+import image.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic images for the benchmarks, so results do not depend on files
+ * that are not in the repository.
+ * <p>
+ * An image is a diagonal gradient with concentric rings and seeded per-pixel noise: smooth
+ * enough to compress like a photograph, and varied enough that tile brightness, and so the
+ * chosen chars, differ across the image.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+final class SyntheticImages {
+	private static final long SEED = 0x5EEDL;
+	private static final int OPAQUE_ALPHA = 0xFF000000;
+	private static final int MAX_RGB = 255;
+	private static final int RED_SHIFT = 16;
+	private static final int GREEN_SHIFT = 8;
+	private static final int NOISE = 24;
+	private static final double RING_PERIOD = 0.05;
+	private static final double RING_AMPLITUDE = 48;
+	private static final String FILE_PREFIX = "synthetic";
+
+	private SyntheticImages() {
+	}
+
+	/**
+	 * Creates a synthetic image.
+	 *
+	 * @param width  the image width
+	 * @param height the image height
+	 * @return the image, the same for the same dimensions
+	 */
+	static Image create(int width, int height) {
+		return new Image(pixels(width, height), width, height);
+	}
+
+	/**
+	 * Writes a synthetic image to a temporary file that is deleted when the JVM exits.
+	 *
+	 * @param width  the image width
+	 * @param height the image height
+	 * @param format the ImageIO format name, such as "png" or "jpeg"
+	 * @return the file
+	 * @throws IOException if the file cannot be written
+	 */
+	static File write(int width, int height, String format) throws IOException {
+		BufferedImage image = createBuffered(width, height, BufferedImage.TYPE_INT_RGB);
+		File file = Files.createTempFile(FILE_PREFIX, "." + format).toFile();
+		file.deleteOnExit();
+		if (!ImageIO.write(image, format, file)) {
+			throw new IOException("No image writer for " + format);
+		}
+		return file;
+	}
+
+	/**
+	 * Creates a synthetic image as a {@link BufferedImage} of the given type.
+	 *
+	 * @param width  the image width
+	 * @param height the image height
+	 * @param type   the image type, such as {@link BufferedImage#TYPE_INT_ARGB}
+	 * @return the image, with the same pixels as {@link #create} for the same dimensions
+	 */
+	static BufferedImage createBuffered(int width, int height, int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		int[] pixels = pixels(width, height);
+		if (image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+			int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			System.arraycopy(pixels, 0, data, 0, data.length);
+		} else {
+			image.setRGB(0, 0, width, height, pixels, 0, width);
+		}
+		return image;
+	}
+
+	/**
+	 * Generates the packed ARGB pixels of a synthetic image.
+	 */
+	private static int[] pixels(int width, int height) {
+		Random random = new Random(SEED);
+		int[] pixels = new int[width * height];
+		double centerX = width / 2.0;
+		double centerY = height / 2.0;
+		double scale = (double) MAX_RGB / (width + height);
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				double ring = RING_AMPLITUDE * Math.sin(RING_PERIOD *
+						Math.hypot(col - centerX, row - centerY));
+				int base = (int) ((row + col) * scale + ring);
+				int red = clamp(base + random.nextInt(NOISE));
+				int green = clamp(MAX_RGB - base + random.nextInt(NOISE));
+				int blue = clamp((base + row * MAX_RGB / height) / 2 + random.nextInt(NOISE));
+				pixels[row * width + col] =
+						OPAQUE_ALPHA | red << RED_SHIFT | green << GREEN_SHIFT | blue;
+			}
+		}
+		return pixels;
+	}
+
+	private static int clamp(int channel) {
+		return Math.max(0, Math.min(MAX_RGB, channel));
+	}
+}
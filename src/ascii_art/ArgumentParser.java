@@ -0,0 +1,120 @@
+package ascii_art;
+
+import image_char_matching.RoundingMode;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * The {@code ArgumentParser} class holds the argument parsing shared by the entry points of
+ * this package: {@link Shell}, {@link BatchConverter}, {@link AsciiAnimator} and
+ * {@link RenderServer}. Malformed values are reported as an {@link IOException} carrying a
+ * message fit to show the user, as the entry points report their other errors.
+ *
+ * @author Eyal and Dana
+ */
+final class ArgumentParser {
+	private static final String UP_MSG = "up";
+	private static final String DOWN_MSG = "down";
+	private static final String ABS_MSG = "abs";
+	private static final String ALL_MSG = "all";
+	private static final String SPACE_MSG = "space";
+	private static final String SPEC_SEPARATOR = ",";
+	private static final String INCORRECT_ROUND_MSG = "Rounding mode must be up, down or abs.";
+	private static final String INCORRECT_CHARS_MSG = "Incorrect char spec: ";
+	private static final int MIN_NUM_ONE = 1;
+	private static final int RANGE_LENGTH = 3;
+	private static final int HYPHEN_INDEX = 1;
+	private static final int RANGE_END_INDEX = 2;
+	private static final char HYPHEN_CHAR = '-';
+	private static final char SPACE_CHAR = ' ';
+	private static final char FIRST_ASCII_CHAR = ' ';
+	private static final char LAST_ASCII_CHAR = '}';
+
+	private ArgumentParser() {
+	}
+
+	/**
+	 * Builds the array of all characters in an inclusive range.
+	 *
+	 * @param start the first character
+	 * @param end   the last character
+	 * @return the characters from start to end
+	 */
+	static char[] charRange(char start, char end) {
+		char[] chars = new char[end - start + 1];
+		for (char c = start; c <= end; c++) {
+			chars[c - start] = c;
+		}
+		return chars;
+	}
+
+	/**
+	 * Parses a comma-separated list of char specs into the charset.
+	 *
+	 * @param specs   the specs, each a single char, a range, {@code all} or {@code space}
+	 * @param charset the set to add the chars to
+	 * @throws IOException if a spec is malformed
+	 */
+	static void parseChars(String specs, Set<Character> charset) throws IOException {
+		for (String spec : specs.split(SPEC_SEPARATOR)) {
+			char[] chars;
+			if (spec.equals(ALL_MSG)) {
+				chars = charRange(FIRST_ASCII_CHAR, LAST_ASCII_CHAR);
+			} else if (spec.equals(SPACE_MSG)) {
+				chars = new char[]{SPACE_CHAR};
+			} else if (spec.length() == MIN_NUM_ONE) {
+				chars = new char[]{spec.charAt(0)};
+			} else if (spec.length() == RANGE_LENGTH && spec.charAt(HYPHEN_INDEX) == HYPHEN_CHAR) {
+				char first = spec.charAt(0);
+				char second = spec.charAt(RANGE_END_INDEX);
+				chars = charRange((char) Math.min(first, second), (char) Math.max(first, second));
+			} else {
+				throw new IOException(INCORRECT_CHARS_MSG + spec);
+			}
+			for (char c : chars) {
+				if (c < FIRST_ASCII_CHAR || c > LAST_ASCII_CHAR) {
+					throw new IOException(INCORRECT_CHARS_MSG + spec);
+				}
+				charset.add(c);
+			}
+		}
+	}
+
+	/**
+	 * Parses a positive integer option value.
+	 *
+	 * @param value    the value to parse
+	 * @param errorMsg the message to fail with if the value is not a positive integer
+	 * @return the parsed value
+	 * @throws IOException if the value is not a positive integer
+	 */
+	static int parsePositive(String value, String errorMsg) throws IOException {
+		try {
+			int number = Integer.parseInt(value);
+			if (number >= MIN_NUM_ONE) {
+				return number;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below
+		}
+		throw new IOException(errorMsg);
+	}
+
+	/**
+	 * Parses a rounding mode given as {@code up}, {@code down} or {@code abs}, the names the
+	 * shell's {@code round} command uses.
+	 *
+	 * @param value the value to parse
+	 * @return the rounding mode
+	 * @throws IOException if the value names no rounding mode
+	 */
+	static RoundingMode parseRoundingMode(String value) throws IOException {
+		return switch (value) {
+			case UP_MSG -> RoundingMode.UP;
+			case DOWN_MSG -> RoundingMode.DOWN;
+			case ABS_MSG -> RoundingMode.NEAREST;
+			default -> throw new IOException(INCORRECT_ROUND_MSG);
+		};
+	}
+}
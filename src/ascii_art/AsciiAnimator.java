@@ -0,0 +1,231 @@
+package ascii_art;
+
+import ascii_output.AsciiRowSink;
+import ascii_output.AnsiDeltaOutput;
+import ascii_output.HtmlAnimationOutput;
+import image.FrameSequence;
+import image.FrameTileTracker;
+import image_char_matching.SubImgCharMatcher;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@code AsciiAnimator} class turns an animated GIF, or a directory of numbered frames,
+ * into an ASCII-art animation.
+ *
+ * <p>
+ * Usage:
+ * <pre>
+ * java ascii_art.AsciiAnimator &lt;animation file | frame dir&gt;
+ *     [--res n] [--chars spec[,spec...]] [--fps n] [--output html|console]
+ * </pre>
+ * The HTML output is a single self-playing file, {@code output.html}; the console output
+ * plays the frames in place on an ANSI terminal at the given frame rate, redrawing only the
+ * changed chars through an {@link AnsiDeltaOutput}, and reports the bytes sent per frame.
+ * The resolution divides the unpadded frames as the shell's {@code res n} does, and char
+ * specs are as in {@link BatchConverter}.
+ * </p>
+ *
+ * <p>
+ * Decoding, tile computation and writing run as three overlapping stages connected by
+ * small bounded queues, so the next frame is decoded while the current one is computed and
+ * the previous one is written. A {@link FrameTileTracker} recomputes brightness only for the
+ * tiles whose pixels changed since the previous frame, which in typical animations is a small
+ * fraction of them.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class AsciiAnimator {
+	private static final String USAGE_MSG = "Usage: AsciiAnimator <animation file | frame dir> " +
+			"[--res n] [--chars spec[,spec...]] [--fps n] [--output html|console]";
+	private static final String RES_OPTION = "--res";
+	private static final String CHARS_OPTION = "--chars";
+	private static final String FPS_OPTION = "--fps";
+	private static final String OUTPUT_OPTION = "--output";
+	private static final String HTML_MSG = "html";
+	private static final String CONSOLE_MSG = "console";
+	private static final String OUTPUT_HTML_FILENAME = "output.html";
+	private static final String FONT_NAME = "Courier New";
+	private static final String INCORRECT_RES_MSG = "Resolution must be a positive number.";
+	private static final String INCORRECT_FPS_MSG = "Frame rate must be a positive number.";
+	private static final String INCORRECT_OUTPUT_MSG = "Output must be html or console.";
+	private static final String SMALL_CHARSET_MSG = "Charset is too small.";
+	private static final String RES_BOUND_MSG = "Resolution exceeds the frame boundaries.";
+	private static final String SUMMARY_MSG = "Rendered %d frames in %.2f s (%.1f frames/sec);" +
+			" recomputed %.1f%% of tiles.%n";
+	private static final String BYTES_MSG = "Sent %d bytes in total, %.0f bytes per frame.%n";
+	private static final char[] DEFAULT_CHARSET = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+	private static final int[] END_OF_FRAMES = new int[0];
+	private static final char[][] END_OF_ASCII = new char[0][];
+	private static final int DEFAULT_RES = 64;
+	private static final int DEFAULT_FPS = 10;
+	private static final int STAGES = 3;
+	private static final int QUEUE_CAPACITY = 4;
+	private static final int MIN_NUM_ONE = 1;
+	private static final int MIN_CHARSET_SIZE = 2;
+	private static final int INPUT_ARG = 0;
+	private static final int FIRST_OPTION_ARG = 1;
+	private static final double NANOS_PER_SECOND = 1e9;
+	private static final double PERCENT = 100.0;
+
+	private final int res;
+	private final SubImgCharMatcher matcher;
+	private final AsciiRowSink sink;
+
+	/**
+	 * Constructs an animator.
+	 *
+	 * @param res     the resolution (number of chars per row)
+	 * @param matcher a matcher that maps brightness values to characters
+	 * @param sink    the sink that receives every frame, then the end of the stream
+	 */
+	public AsciiAnimator(int res, SubImgCharMatcher matcher, AsciiRowSink sink) {
+		this.res = res;
+		this.matcher = matcher;
+		this.sink = sink;
+	}
+
+	/**
+	 * Converts every frame of a sequence and writes it to the sink, printing a summary.
+	 *
+	 * @param frames the frames to convert
+	 * @throws IOException if decoding fails or the resolution does not fit the frames
+	 */
+	public void animate(FrameSequence frames) throws IOException {
+		if (res > frames.getWidth()) {
+			throw new IOException(RES_BOUND_MSG);
+		}
+		FrameTileTracker tracker = new FrameTileTracker(frames.getWidth(), frames.getHeight(), res);
+		BlockingQueue<int[]> decoded = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		BlockingQueue<char[][]> converted = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		long[] counts = new long[2];
+		long start = System.nanoTime();
+
+		ExecutorService stages = Executors.newFixedThreadPool(STAGES);
+		ExecutorCompletionService<Void> completion = new ExecutorCompletionService<>(stages);
+		completion.submit(() -> {
+			for (int[] frame = frames.nextFrame(); frame != null; frame = frames.nextFrame()) {
+				decoded.put(frame);
+			}
+			decoded.put(END_OF_FRAMES);
+			return null;
+		});
+		completion.submit(() -> {
+			for (int[] frame = decoded.take(); frame != END_OF_FRAMES; frame = decoded.take()) {
+				double[] brightness = tracker.update(frame);
+				char[][] chars = new char[tracker.getRows()][res];
+				for (int i = 0; i < chars.length; i++) {
+					for (int j = 0; j < res; j++) {
+						chars[i][j] = matcher.getCharByImageBrightness(brightness[i * res + j]);
+					}
+				}
+				counts[0]++;
+				counts[1] += tracker.getChangedTiles();
+				converted.put(chars);
+			}
+			converted.put(END_OF_ASCII);
+			return null;
+		});
+		completion.submit(() -> {
+			for (char[][] chars = converted.take(); chars != END_OF_ASCII; chars = converted.take()) {
+				sink.frame(chars);
+			}
+			sink.endStream();
+			return null;
+		});
+		try {
+			for (int i = 0; i < STAGES; i++) {
+				completion.take().get();
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof IOException ?
+					(IOException) cause : new IOException(cause.getMessage(), cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			// Unblocks the other stages if one of them failed
+			stages.shutdownNow();
+		}
+
+		double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+		long tiles = Math.max(MIN_NUM_ONE, counts[0] * tracker.getRows() * res);
+		System.out.printf(SUMMARY_MSG, counts[0], seconds, counts[0] / seconds,
+				PERCENT * counts[1] / tiles);
+		if (sink instanceof AnsiDeltaOutput) {
+			AnsiDeltaOutput ansi = (AnsiDeltaOutput) sink;
+			System.out.printf(BYTES_MSG, ansi.getTotalBytes(),
+					(double) ansi.getTotalBytes() / Math.max(MIN_NUM_ONE, ansi.getFrames()));
+		}
+	}
+
+	/**
+	 * Entry point of the animator.
+	 * Run with {@code -DglyphCache=<file>} to reuse glyph brightness values between runs.
+	 *
+	 * @param args the input and options; see the class documentation
+	 * @throws IOException if the arguments are invalid or the frames cannot be decoded
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < FIRST_OPTION_ARG) {
+			throw new IOException(USAGE_MSG);
+		}
+		int res = DEFAULT_RES;
+		int fps = DEFAULT_FPS;
+		String output = HTML_MSG;
+		Set<Character> charset = new TreeSet<>();
+		String chars = null;
+		for (int i = FIRST_OPTION_ARG; i < args.length; i++) {
+			String value = i + 1 < args.length ? args[i + 1] : "";
+			switch (args[i]) {
+				case RES_OPTION -> res = ArgumentParser.parsePositive(value, INCORRECT_RES_MSG);
+				case FPS_OPTION -> fps = ArgumentParser.parsePositive(value, INCORRECT_FPS_MSG);
+				case CHARS_OPTION -> chars = value;
+				case OUTPUT_OPTION -> {
+					if (!value.equals(HTML_MSG) && !value.equals(CONSOLE_MSG)) {
+						throw new IOException(INCORRECT_OUTPUT_MSG);
+					}
+					output = value;
+				}
+				default -> throw new IOException(USAGE_MSG);
+			}
+			i++;
+		}
+		if (chars == null) {
+			for (char c : DEFAULT_CHARSET) {
+				charset.add(c);
+			}
+		} else {
+			ArgumentParser.parseChars(chars, charset);
+		}
+		if (charset.size() < MIN_CHARSET_SIZE) {
+			throw new IOException(SMALL_CHARSET_MSG);
+		}
+
+		Shell.loadGlyphCache();
+		char[] charArray = new char[charset.size()];
+		int index = 0;
+		for (char c : charset) {
+			charArray[index++] = c;
+		}
+		SubImgCharMatcher matcher = new SubImgCharMatcher(charArray);
+		boolean html = output.equals(HTML_MSG);
+		AsciiRowSink sink = html ?
+				new HtmlAnimationOutput(OUTPUT_HTML_FILENAME, FONT_NAME, fps) :
+				new AnsiDeltaOutput(fps);
+		try (FrameSequence frames = new FrameSequence(args[INPUT_ARG])) {
+			new AsciiAnimator(res, matcher, sink).animate(frames);
+		}
+		Shell.saveGlyphCache();
+	}
+}
@@ -1,11 +1,16 @@
 package ascii_art;
 
+import ascii_output.AsciiRowSink;
+import image.BrightnessPyramid;
 import image.Image;
+import image.IntegralImage;
+import image.TileBrightnessSource;
 import image_char_matching.SubImgCharMatcher;
 import image.ImageProcessor;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * The {@code AsciiArtAlgorithm} class generates ASCII art from a given image
@@ -19,15 +24,35 @@ import java.util.Map;
  * </p>
  *
  * <p>
- * To optimize performance, brightness values are cached per block using a computed index.
+ * To optimize performance, block brightness is read from a {@link BrightnessPyramid} over an
+ * {@link IntegralImage} of the padded image, so each block costs O(1) regardless of its size.
+ * The pyramid can be built once per loaded image and shared between algorithms of different
+ * resolutions, which makes moving between previously visited resolutions nearly free.
+ * Any other {@link TileBrightnessSource}, such as an {@link image.UnpaddedTileGrid} for
+ * resolutions that are not powers of two, can be used in its place.
+ * </p>
+ *
+ * <p>
+ * When given a {@link ForkJoinPool}, tile rows are mapped to chars in parallel row bands.
+ * Every tile is computed independently, so the result is identical to the sequential path.
+ * </p>
+ *
+ * <p>
+ * Fetching tile brightness, mapping and writing to the sink are each reported to
+ * {@link PipelineMetrics} as their own stage.
+ * </p>
  *
  * @author Eyal and Dana
  */
 public class AsciiArtAlgorithm {
-	private Image image;
+	private static final int MIN_BAND_ROWS = 1;
+	private static final int BANDS_PER_WORKER = 4;
+
+	private final TileBrightnessSource tiles;
 	private final int res;
 	private final SubImgCharMatcher matcher;
-	private final Map<Integer, Double> brightnessCache = new HashMap<>();
+	private final ForkJoinPool pool;
+	private double[] tileBrightness;
 
 
 	/**
@@ -38,40 +63,173 @@ public class AsciiArtAlgorithm {
 	 * @param matcher a matcher that maps brightness values to characters
 	 */
 	public AsciiArtAlgorithm(Image image, int res, SubImgCharMatcher matcher) {
-		this.image = image;
+		this(new BrightnessPyramid(new IntegralImage(ImageProcessor.padVirtually(image))),
+				res, matcher, null);
+	}
+
+	/**
+	 * Constructs a new AsciiArtAlgorithm instance that processes tiles on the given pool.
+	 *
+	 * @param tiles   the tile brightness source, such as the pyramid of the padded image
+	 * @param res     the resolution (number of blocks per row) used to divide the image
+	 * @param matcher a matcher that maps brightness values to characters
+	 * @param pool    the pool to run row bands on, or {@code null} to run sequentially
+	 */
+	public AsciiArtAlgorithm(TileBrightnessSource tiles, int res, SubImgCharMatcher matcher,
+							 ForkJoinPool pool) {
+		this.tiles = tiles;
 		this.res = res;
 		this.matcher = matcher;
+		this.pool = pool;
 	}
 
 	/**
 	 * Runs the ASCII art conversion algorithm.
 	 * <p>
+	 * The tile brightness array is fetched on the first run and kept separately from the
+	 * matcher, so later runs after a charset or rounding mode change only redo the mapping.
+	 * </p>
+	 * <p>
 	 * This method:
 	 * <ul>
-	 *     <li>Pads the image to dimensions that are powers of two</li>
-	 *     <li>Splits the image into square sub-images (tiles)</li>
-	 *     <li>Computes the average brightness for each tile</li>
+	 *     <li>Divides the padded image into square tiles</li>
+	 *     <li>Reads the average brightness of each tile from the tile source</li>
 	 *     <li>Maps each brightness to a character via the matcher</li>
 	 * </ul>
 	 *
 	 * @return a 2D character array representing the ASCII-art image
 	 */
 	public char[][] run() {
-		image = ImageProcessor.padToPowerOfTwo(this.image);
-		Image[][] images = ImageProcessor.splitImage(this.image, this.res);
-		int rows = images.length;
-		int cols = images[0].length;
-		char[][] brightness = new char[rows][cols];
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < cols; j++) {
-				int key = i * cols + j;
-				final Image subImg = images[i][j];
-				double bri = brightnessCache.computeIfAbsent(key,
-						k -> ImageProcessor.computeAverageBrightness(subImg));
-				brightness[i][j] = matcher.getCharByImageBrightness(bri);
+		int rows = tiles.getRows(this.res);
+		double[] tileBrightness = getTileBrightness();
+		char[][] brightness = new char[rows][this.res];
+		PipelineMetrics.Span match = PipelineMetrics.begin(PipelineMetrics.Stage.MATCH);
+		forEachRow(0, rows, i -> mapRow(tileBrightness, i, brightness[i]));
+		PipelineMetrics.end(match);
+		return brightness;
+	}
 
+	/**
+	 * Runs the ASCII art conversion algorithm, streaming rows into the given sink as
+	 * they are produced. Only one band of rows, and the tile brightness of that band, is held
+	 * in memory at a time: brightness is fetched per band through
+	 * {@link TileBrightnessSource#getTileBrightness(int, int, int, double[])}, unless an
+	 * earlier {@link #run()} already fetched the whole array.
+	 *
+	 * @param sink the sink that receives the ASCII-art rows
+	 */
+	public void run(AsciiRowSink sink) {
+		int rows = tiles.getRows(this.res);
+		int cols = this.res;
+		double[] cachedBrightness = tileBrightness;
+		int bandRows = pool == null ? MIN_BAND_ROWS : pool.getParallelism() * BANDS_PER_WORKER;
+		char[][] band = new char[Math.min(bandRows, rows)][cols];
+		double[] bandBrightness = cachedBrightness != null ? null :
+				new double[Math.min(bandRows, rows) * cols];
+		PipelineMetrics.Span begin = PipelineMetrics.begin(PipelineMetrics.Stage.OUTPUT);
+		sink.beginFrame(rows, cols);
+		PipelineMetrics.end(begin);
+		for (int bandStart = 0; bandStart < rows; bandStart += bandRows) {
+			int start = bandStart;
+			int end = Math.min(rows, start + bandRows);
+			if (cachedBrightness == null) {
+				PipelineMetrics.Span brightness =
+						PipelineMetrics.begin(PipelineMetrics.Stage.BRIGHTNESS);
+				tiles.getTileBrightness(this.res, start, end, bandBrightness);
+				PipelineMetrics.end(brightness);
+			}
+			PipelineMetrics.Span match = PipelineMetrics.begin(PipelineMetrics.Stage.MATCH);
+			if (cachedBrightness == null) {
+				forEachRow(start, end, i -> mapRow(bandBrightness, i - start, band[i - start]));
+			} else {
+				forEachRow(start, end, i -> mapRow(cachedBrightness, i, band[i - start]));
+			}
+			PipelineMetrics.end(match);
+			PipelineMetrics.Span output = PipelineMetrics.begin(PipelineMetrics.Stage.OUTPUT);
+			for (int i = start; i < end; i++) {
+				sink.row(band[i - start]);
 			}
+			PipelineMetrics.end(output);
+		}
+		PipelineMetrics.Span output = PipelineMetrics.begin(PipelineMetrics.Stage.OUTPUT);
+		sink.endFrame();
+		PipelineMetrics.end(output);
+	}
+
+	/**
+	 * Returns the tile brightness array, fetching it from the tile source on first use.
+	 */
+	private double[] getTileBrightness() {
+		if (tileBrightness == null) {
+			PipelineMetrics.Span brightness = PipelineMetrics.begin(PipelineMetrics.Stage.BRIGHTNESS);
+			tileBrightness = tiles.getTileBrightness(this.res);
+			PipelineMetrics.end(brightness);
+		}
+		return tileBrightness;
+	}
+
+	/**
+	 * Maps one row of tile brightness values to chars via the matcher.
+	 *
+	 * @param tileBrightness the row-major tile brightness values
+	 * @param row            the tile row to map
+	 * @param chars          the array to fill with the row's chars
+	 */
+	private void mapRow(double[] tileBrightness, int row, char[] chars) {
+		int offset = row * this.res;
+		for (int j = 0; j < chars.length; j++) {
+			chars[j] = matcher.getCharByImageBrightness(tileBrightness[offset + j]);
+		}
+	}
+
+	/**
+	 * Runs the given action once for every tile row in a range, sequentially or on the pool.
+	 *
+	 * @param fromRow   the first row index, inclusive
+	 * @param toRow     the last row index, exclusive
+	 * @param rowAction the action to run for each row index
+	 */
+	private void forEachRow(int fromRow, int toRow, IntConsumer rowAction) {
+		if (pool == null) {
+			for (int i = fromRow; i < toRow; i++) {
+				rowAction.accept(i);
+			}
+			return;
+		}
+		int bandSize = Math.max(MIN_BAND_ROWS,
+				(toRow - fromRow) / (pool.getParallelism() * BANDS_PER_WORKER));
+		pool.invoke(new RowBandTask(fromRow, toRow, bandSize, rowAction));
+	}
+
+	/**
+	 * A fork/join task that splits a range of tile rows into bands and runs an action per row.
+	 */
+	private static class RowBandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int fromRow;
+		private final int toRow;
+		private final int bandSize;
+		private final transient IntConsumer rowAction;
+
+		RowBandTask(int fromRow, int toRow, int bandSize, IntConsumer rowAction) {
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+			this.bandSize = bandSize;
+			this.rowAction = rowAction;
+		}
+
+		@Override
+		protected void compute() {
+			if (toRow - fromRow <= bandSize) {
+				for (int i = fromRow; i < toRow; i++) {
+					rowAction.accept(i);
+				}
+				return;
+			}
+			int middle = (fromRow + toRow) >>> 1;
+			invokeAll(new RowBandTask(fromRow, middle, bandSize, rowAction),
+					new RowBandTask(middle, toRow, bandSize, rowAction));
 		}
-		return brightness;
 	}
 }
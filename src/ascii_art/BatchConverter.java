@@ -0,0 +1,370 @@
+package ascii_art;
+
+import ascii_output.HtmlAsciiOutput;
+import image.BrightnessPyramid;
+import image.Image;
+import image.ImageProcessor;
+import image.IntegralImage;
+import image.TileBrightnessSource;
+import image.UnpaddedTileGrid;
+import image_char_matching.RoundingMode;
+import image_char_matching.SubImgCharMatcher;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code BatchConverter} class converts many images to HTML ASCII art without any
+ * interaction, as a non-interactive counterpart of {@link Shell}.
+ *
+ * <p>
+ * Usage:
+ * <pre>
+ * java ascii_art.BatchConverter &lt;input dir | list file&gt; &lt;output dir&gt;
+ *     [--res n] [--padded] [--chars spec[,spec...]] [--round up|down|abs]
+ *     [--threads n] [--gzip]
+ * </pre>
+ * The input is either a directory, whose readable image files are all converted, or a text
+ * file listing one image path per line. Each image is written to
+ * {@code <output dir>/<image file name>.html}, keeping the source extension so that
+ * {@code x.jpeg} and {@code x.jpg} do not collide. Images that would still share an output
+ * file, such as {@code a/x.png} and {@code b/x.png} in a list, are reported before anything is
+ * converted. A char spec is a single char, a range such as
+ * {@code a-z}, {@code all} or {@code space}, as in the shell's {@code add} command. By default
+ * the resolution divides the unpadded image like the shell's {@code res n}; with
+ * {@code --padded} it must be a power of two and the image is padded as in {@code res up/down}.
+ * </p>
+ *
+ * <p>
+ * Decoding (including building the integral image) and rendering run on two separate
+ * worker pools of {@code --threads} workers each, so one image is decoded while another is
+ * rendered. At most {@link #IN_FLIGHT_PER_THREAD} images per worker are held decoded at a
+ * time, which bounds memory however many images are queued. All workers share a single
+ * read-only {@link SubImgCharMatcher}, and therefore the glyph brightness cache behind it.
+ * When done, the throughput and the per-image latency distribution are printed.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class BatchConverter {
+	private static final String USAGE_MSG = "Usage: BatchConverter <input dir | list file> " +
+			"<output dir> [--res n] [--padded] [--chars spec[,spec...]] [--round up|down|abs] " +
+			"[--threads n] [--gzip]";
+	private static final String RES_OPTION = "--res";
+	private static final String PADDED_OPTION = "--padded";
+	private static final String CHARS_OPTION = "--chars";
+	private static final String ROUND_OPTION = "--round";
+	private static final String THREADS_OPTION = "--threads";
+	private static final String GZIP_OPTION = "--gzip";
+	private static final String EXTENSION_SEPARATOR = ".";
+	private static final String HTML_EXTENSION = ".html";
+	private static final String FONT_NAME = "Courier New";
+	private static final String INCORRECT_RES_MSG = "Resolution must be a positive number" +
+			" (a power of two with --padded).";
+	private static final String INCORRECT_THREADS_MSG = "Number of threads must be positive.";
+	private static final String SMALL_CHARSET_MSG = "Charset is too small.";
+	private static final String NO_OUTPUT_DIR_MSG = "Cannot create output directory ";
+	private static final String DUPLICATE_OUTPUT_MSG = "Images with the same output file: ";
+	private static final String DUPLICATE_SEPARATOR = ", ";
+	private static final String DUPLICATE_PAIR_MSG = "%s and %s";
+	private static final String RES_BOUND_MSG = "Resolution exceeds the image boundaries";
+	private static final String FAILED_MSG = "Failed to convert %s: %s%n";
+	private static final String SUMMARY_MSG = "Converted %d of %d images in %.2f s" +
+			" (%.2f images/sec, %d threads).%n";
+	private static final String LATENCY_MSG = "Per-image latency: mean %.1f ms, p50 %.1f ms," +
+			" p95 %.1f ms, max %.1f ms.%n";
+	private static final char[] DEFAULT_CHARSET = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+	private static final int DEFAULT_RES = 128;
+	private static final int MIN_NUM_ONE = 1;
+	private static final int MIN_CHARSET_SIZE = 2;
+	private static final int INPUT_ARG = 0;
+	private static final int OUTPUT_ARG = 1;
+	private static final int FIRST_OPTION_ARG = 2;
+	private static final int IN_FLIGHT_PER_THREAD = 2;
+	private static final double NANOS_PER_MILLI = 1e6;
+	private static final double NANOS_PER_SECOND = 1e9;
+	private static final double MEDIAN = 0.5;
+	private static final double P95 = 0.95;
+
+	private final File outputDir;
+	private final int res;
+	private final boolean padded;
+	private final boolean compress;
+	private final int threads;
+	private final SubImgCharMatcher matcher;
+
+	/**
+	 * Constructs a batch converter with the given settings.
+	 *
+	 * @param outputDir the directory to write the HTML files to
+	 * @param res       the resolution (number of chars per row)
+	 * @param padded    whether to pad images to powers of two instead of dividing them as is
+	 * @param compress  whether to gzip-compress the HTML files
+	 * @param threads   the number of decoding and of rendering workers
+	 * @param matcher   the matcher shared by all workers; must not be modified while converting
+	 */
+	public BatchConverter(File outputDir, int res, boolean padded, boolean compress, int threads,
+						  SubImgCharMatcher matcher) {
+		this.outputDir = outputDir;
+		this.res = res;
+		this.padded = padded;
+		this.compress = compress;
+		this.threads = threads;
+		this.matcher = matcher;
+	}
+
+	/**
+	 * Converts all the given images, printing a line for every failure and a summary of
+	 * throughput and latency at the end.
+	 *
+	 * @param images the image files to convert
+	 * @return the number of images converted successfully
+	 */
+	public int convertAll(List<File> images) {
+		ExecutorService decoders = Executors.newFixedThreadPool(threads);
+		ExecutorService renderers = Executors.newFixedThreadPool(threads);
+		Semaphore inFlight = new Semaphore(threads * IN_FLIGHT_PER_THREAD);
+		long[] latencies = new long[images.size()];
+		AtomicInteger converted = new AtomicInteger();
+		List<CompletableFuture<Void>> pending = new ArrayList<>(images.size());
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < images.size(); i++) {
+				File file = images.get(i);
+				int index = i;
+				inFlight.acquireUninterruptibly();
+				long imageStart = System.nanoTime();
+				pending.add(CompletableFuture
+						.supplyAsync(() -> decode(file), decoders)
+						.thenAcceptAsync(tiles -> render(tiles, file), renderers)
+						.handle((ignored, failure) -> {
+							latencies[index] = System.nanoTime() - imageStart;
+							inFlight.release();
+							if (failure == null) {
+								converted.incrementAndGet();
+							} else {
+								Throwable cause = failure.getCause() != null ?
+										failure.getCause() : failure;
+								System.out.printf(FAILED_MSG, file, cause.getMessage());
+							}
+							return null;
+						}));
+			}
+			CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+		} finally {
+			decoders.shutdown();
+			renderers.shutdown();
+		}
+		printSummary(converted.get(), latencies, System.nanoTime() - start);
+		return converted.get();
+	}
+
+	/**
+	 * Decodes an image and builds the tile brightness source the renderer reads from.
+	 *
+	 * @param file the image file
+	 * @return the tile brightness source of the image
+	 */
+	private TileBrightnessSource decode(File file) {
+		Image image;
+		try {
+			image = new Image(file.getPath());
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		int minCharsInRow = Math.max(MIN_NUM_ONE, image.getWidth() / image.getHeight());
+		if (res < minCharsInRow || res > image.getWidth()) {
+			throw new IllegalArgumentException(RES_BOUND_MSG);
+		}
+		if (padded) {
+			return new BrightnessPyramid(new IntegralImage(ImageProcessor.padVirtually(image)));
+		}
+		return new UnpaddedTileGrid(new IntegralImage(image));
+	}
+
+	/**
+	 * Renders an image's tiles to its HTML file in the output directory.
+	 *
+	 * @param tiles the tile brightness source of the image
+	 * @param file  the image file, whose name names the output
+	 * @throws UncheckedIOException if the HTML file could not be written
+	 */
+	private void render(TileBrightnessSource tiles, File file) {
+		String outputName = new File(outputDir, outputName(file)).getPath();
+		HtmlAsciiOutput output = new HtmlAsciiOutput(outputName, FONT_NAME, compress);
+		new AsciiArtAlgorithm(tiles, res, matcher, null).run(output);
+		if (output.getFailure() != null) {
+			throw new UncheckedIOException(output.getFailure());
+		}
+	}
+
+	/**
+	 * Returns the name of the HTML file an image is written to: its file name, extension
+	 * included, followed by {@link #HTML_EXTENSION}.
+	 */
+	private static String outputName(File image) {
+		return image.getName() + HTML_EXTENSION;
+	}
+
+	/**
+	 * Prints the throughput and the per-image latency distribution.
+	 */
+	private void printSummary(int converted, long[] latencies, long elapsed) {
+		double seconds = elapsed / NANOS_PER_SECOND;
+		System.out.printf(SUMMARY_MSG, converted, latencies.length, seconds,
+				latencies.length / seconds, threads);
+		if (latencies.length == 0) {
+			return;
+		}
+		long[] sorted = latencies.clone();
+		Arrays.sort(sorted);
+		double mean = Arrays.stream(sorted).average().orElse(0);
+		System.out.printf(LATENCY_MSG, mean / NANOS_PER_MILLI,
+				percentile(sorted, MEDIAN) / NANOS_PER_MILLI,
+				percentile(sorted, P95) / NANOS_PER_MILLI,
+				sorted[sorted.length - 1] / NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Returns the nearest-rank percentile of sorted values.
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, rank)];
+	}
+
+	/**
+	 * Lists the images to convert: the readable image files of a directory, in name order,
+	 * or the paths listed one per line in a file.
+	 *
+	 * @param input the input directory or list file
+	 * @return the image files
+	 * @throws IOException if the input cannot be read, or if two images would be written to
+	 *                     the same output file
+	 */
+	static List<File> listImages(File input) throws IOException {
+		List<File> images = new ArrayList<>();
+		if (input.isDirectory()) {
+			Set<String> suffixes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+			suffixes.addAll(Arrays.asList(ImageIO.getReaderFileSuffixes()));
+			File[] files = input.listFiles();
+			if (files == null) {
+				throw new IOException(input.getPath());
+			}
+			Arrays.sort(files);
+			for (File file : files) {
+				String name = file.getName();
+				int extension = name.lastIndexOf(EXTENSION_SEPARATOR);
+				if (file.isFile() && extension > 0 && suffixes.contains(name.substring(extension + 1))) {
+					images.add(file);
+				}
+			}
+		} else {
+			for (String line : Files.readAllLines(Paths.get(input.getPath()))) {
+				if (!line.isBlank()) {
+					images.add(new File(line.trim()));
+				}
+			}
+		}
+		checkOutputNames(images);
+		return images;
+	}
+
+	/**
+	 * Fails if two images would be written to the same output file, naming every such pair.
+	 * Names are compared ignoring case, as case-insensitive file systems would.
+	 */
+	private static void checkOutputNames(List<File> images) throws IOException {
+		Map<String, File> outputs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		List<String> duplicates = new ArrayList<>();
+		for (File image : images) {
+			File previous = outputs.putIfAbsent(outputName(image), image);
+			if (previous != null) {
+				duplicates.add(String.format(DUPLICATE_PAIR_MSG, previous, image));
+			}
+		}
+		if (!duplicates.isEmpty()) {
+			throw new IOException(DUPLICATE_OUTPUT_MSG + String.join(DUPLICATE_SEPARATOR, duplicates));
+		}
+	}
+
+	/**
+	 * Entry point of the batch converter.
+	 * Run with {@code -DglyphCache=<file>} to reuse glyph brightness values between runs.
+	 *
+	 * @param args the input, the output directory and options; see the class documentation
+	 * @throws IOException if the arguments are invalid or the input cannot be listed
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < FIRST_OPTION_ARG) {
+			throw new IOException(USAGE_MSG);
+		}
+		int res = DEFAULT_RES;
+		boolean padded = false;
+		boolean compress = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		RoundingMode roundingMode = RoundingMode.NEAREST;
+		Set<Character> charset = new TreeSet<>();
+		String chars = null;
+		for (int i = FIRST_OPTION_ARG; i < args.length; i++) {
+			boolean hasValue = i + 1 < args.length;
+			switch (args[i]) {
+				case PADDED_OPTION -> padded = true;
+				case GZIP_OPTION -> compress = true;
+				case RES_OPTION -> res = ArgumentParser.parsePositive(hasValue ? args[++i] : "",
+						INCORRECT_RES_MSG);
+				case THREADS_OPTION -> threads = ArgumentParser.parsePositive(hasValue ? args[++i] : "",
+						INCORRECT_THREADS_MSG);
+				case CHARS_OPTION -> chars = hasValue ? args[++i] : "";
+				case ROUND_OPTION -> roundingMode =
+						ArgumentParser.parseRoundingMode(hasValue ? args[++i] : "");
+				default -> throw new IOException(USAGE_MSG);
+			}
+		}
+		if (padded && Integer.bitCount(res) != MIN_NUM_ONE) {
+			throw new IOException(INCORRECT_RES_MSG);
+		}
+		if (chars == null) {
+			for (char c : DEFAULT_CHARSET) {
+				charset.add(c);
+			}
+		} else {
+			ArgumentParser.parseChars(chars, charset);
+		}
+		if (charset.size() < MIN_CHARSET_SIZE) {
+			throw new IOException(SMALL_CHARSET_MSG);
+		}
+		File outputDir = new File(args[OUTPUT_ARG]);
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException(NO_OUTPUT_DIR_MSG + outputDir);
+		}
+		List<File> images = listImages(new File(args[INPUT_ARG]));
+
+		Shell.loadGlyphCache();
+		char[] charArray = new char[charset.size()];
+		int index = 0;
+		for (char c : charset) {
+			charArray[index++] = c;
+		}
+		SubImgCharMatcher matcher = new SubImgCharMatcher(charArray);
+		matcher.setRoundingMode(roundingMode);
+		new BatchConverter(outputDir, res, padded, compress, threads, matcher).convertAll(images);
+		Shell.saveGlyphCache();
+	}
+}
@@ -0,0 +1,259 @@
+package ascii_art;
+
+import jdk.jfr.EventType;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-stage timing and allocation metrics for the ASCII-art pipeline.
+ * <p>
+ * Code brackets each stage with {@link #begin(Stage)} and {@link #end(Span)}. While metrics
+ * are enabled, the wall time and the bytes allocated by the calling thread are added to the
+ * current run, and {@link #endRun()} closes the run and adds its per-stage totals to a bounded
+ * history for percentiles. Independently, while a flight recording enables {@link StageEvent},
+ * every stage is committed as such an event. When neither is on, {@code begin} returns
+ * {@code null} after a couple of flag checks, so instrumentation costs next to nothing.
+ * </p>
+ * <p>
+ * Work that a stage hands to other threads, such as parallel tile bands, is included in its
+ * wall time but not in its allocation count.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+final class PipelineMetrics {
+	/**
+	 * The stages of the pipeline, in order.
+	 */
+	enum Stage {
+		/**
+		 * Decoding the image file into pixels.
+		 */
+		DECODE("decode"),
+		/**
+		 * Padding the image to powers of two.
+		 */
+		PAD("pad"),
+		/**
+		 * Building the integral image and pyramid, which replace splitting into tiles.
+		 */
+		INDEX("index"),
+		/**
+		 * Computing the average brightness of every tile.
+		 */
+		BRIGHTNESS("brightness"),
+		/**
+		 * Mapping tile brightness to chars.
+		 */
+		MATCH("match"),
+		/**
+		 * Writing the chars to the output.
+		 */
+		OUTPUT("output");
+
+		private final String label;
+
+		Stage(String label) {
+			this.label = label;
+		}
+	}
+
+	private static final String STATS_PROPERTY = "stats";
+	private static final int HISTORY_SIZE = 1024;
+	private static final double NANOS_PER_MILLI = 1e6;
+	private static final double BYTES_PER_KIB = 1024.0;
+	private static final double P50 = 0.5;
+	private static final double P95 = 0.95;
+	private static final double P99 = 0.99;
+	private static final String NO_RUNS_MSG = "No runs recorded yet.";
+	private static final String LAST_RUN_MSG = "Last run: %.3f ms, %.1f KiB allocated%n";
+	private static final String STAGE_MSG = "  %-10s %10.3f ms %12.1f KiB%n";
+	private static final String PERCENTILES_MSG = "Over the last %d runs (ms):%n" +
+			"  %-10s %10s %10s %10s%n";
+	private static final String PERCENTILE_ROW_MSG = "  %-10s %10.3f %10.3f %10.3f%n";
+	private static final String TOTAL_LABEL = "total";
+	private static final String STAGE_LABEL = "stage";
+
+	private static final EventType EVENT_TYPE = EventType.getEventType(StageEvent.class);
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean ALLOCATION_SUPPORTED =
+			THREADS instanceof com.sun.management.ThreadMXBean &&
+					((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported();
+
+	private static volatile boolean enabled = Boolean.getBoolean(STATS_PROPERTY);
+	private static final long[] currentNanos = new long[Stage.values().length];
+	private static final long[] currentBytes = new long[Stage.values().length];
+	private static final long[] lastNanos = new long[Stage.values().length];
+	private static final long[] lastBytes = new long[Stage.values().length];
+	private static final Map<Stage, long[]> history = new EnumMap<>(Stage.class);
+	private static final long[] totalHistory = new long[HISTORY_SIZE];
+	private static final int[] historyCount = new int[Stage.values().length];
+	private static int runs = 0;
+	private static boolean lastRunRecorded = false;
+
+	private PipelineMetrics() {
+	}
+
+	/**
+	 * Returns whether metrics are being collected. Starts as the {@code stats} system property.
+	 *
+	 * @return whether metrics are enabled
+	 */
+	static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns metric collection on or off.
+	 *
+	 * @param enable whether to collect metrics
+	 */
+	static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * Starts measuring a stage on the calling thread.
+	 *
+	 * @param stage the stage that starts
+	 * @return the span to pass to {@link #end(Span)}, or {@code null} when nothing is measured
+	 */
+	static Span begin(Stage stage) {
+		boolean record = enabled;
+		if (!record && !EVENT_TYPE.isEnabled()) {
+			return null;
+		}
+		return new Span(stage, record);
+	}
+
+	/**
+	 * Finishes measuring a stage on the thread that began it.
+	 *
+	 * @param span the span returned by {@link #begin(Stage)}, possibly {@code null}
+	 */
+	static void end(Span span) {
+		if (span == null) {
+			return;
+		}
+		long nanos = System.nanoTime() - span.startNanos;
+		long bytes = allocatedBytes() - span.startBytes;
+		if (span.event != null) {
+			span.event.stage = span.stage.label;
+			span.event.allocatedBytes = bytes;
+			span.event.commit();
+		}
+		if (span.record) {
+			synchronized (PipelineMetrics.class) {
+				currentNanos[span.stage.ordinal()] += nanos;
+				currentBytes[span.stage.ordinal()] += bytes;
+			}
+		}
+	}
+
+	/**
+	 * Closes the current run: everything measured since the previous run becomes the last
+	 * run's breakdown and joins the history.
+	 */
+	static synchronized void endRun() {
+		if (!enabled) {
+			return;
+		}
+		long total = 0;
+		for (Stage stage : Stage.values()) {
+			int i = stage.ordinal();
+			lastNanos[i] = currentNanos[i];
+			lastBytes[i] = currentBytes[i];
+			total += currentNanos[i];
+			if (currentNanos[i] > 0) {
+				history.computeIfAbsent(stage, s -> new long[HISTORY_SIZE])
+						[historyCount[i]++ % HISTORY_SIZE] = currentNanos[i];
+			}
+			currentNanos[i] = 0;
+			currentBytes[i] = 0;
+		}
+		totalHistory[runs++ % HISTORY_SIZE] = total;
+		lastRunRecorded = true;
+	}
+
+	/**
+	 * Prints the last run's per-stage breakdown and the running percentiles of each stage.
+	 */
+	static synchronized void print() {
+		if (!lastRunRecorded) {
+			System.out.println(NO_RUNS_MSG);
+			return;
+		}
+		long totalNanos = 0;
+		long totalBytes = 0;
+		for (Stage stage : Stage.values()) {
+			totalNanos += lastNanos[stage.ordinal()];
+			totalBytes += lastBytes[stage.ordinal()];
+		}
+		System.out.printf(LAST_RUN_MSG, totalNanos / NANOS_PER_MILLI, totalBytes / BYTES_PER_KIB);
+		for (Stage stage : Stage.values()) {
+			System.out.printf(STAGE_MSG, stage.label, lastNanos[stage.ordinal()] / NANOS_PER_MILLI,
+					lastBytes[stage.ordinal()] / BYTES_PER_KIB);
+		}
+		System.out.printf(PERCENTILES_MSG, Math.min(runs, HISTORY_SIZE), STAGE_LABEL, "p50", "p95", "p99");
+		for (Stage stage : Stage.values()) {
+			long[] samples = history.get(stage);
+			if (samples != null) {
+				printPercentiles(stage.label, samples,
+						Math.min(historyCount[stage.ordinal()], HISTORY_SIZE));
+			}
+		}
+		printPercentiles(TOTAL_LABEL, totalHistory, Math.min(runs, HISTORY_SIZE));
+	}
+
+	/**
+	 * Prints the nearest-rank percentiles of the first {@code count} samples.
+	 */
+	private static void printPercentiles(String label, long[] samples, int count) {
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		System.out.printf(PERCENTILE_ROW_MSG, label,
+				percentile(sorted, P50) / NANOS_PER_MILLI,
+				percentile(sorted, P95) / NANOS_PER_MILLI,
+				percentile(sorted, P99) / NANOS_PER_MILLI);
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, rank)];
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the calling thread, or 0 if unsupported.
+	 */
+	private static long allocatedBytes() {
+		return ALLOCATION_SUPPORTED ?
+				((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes() : 0;
+	}
+
+	/**
+	 * One stage being measured on one thread.
+	 */
+	static final class Span {
+		private final Stage stage;
+		private final boolean record;
+		private final StageEvent event;
+		private final long startBytes;
+		private final long startNanos;
+
+		private Span(Stage stage, boolean record) {
+			this.stage = stage;
+			this.record = record;
+			StageEvent stageEvent = new StageEvent();
+			this.event = stageEvent.isEnabled() ? stageEvent : null;
+			if (event != null) {
+				event.begin();
+			}
+			this.startBytes = allocatedBytes();
+			this.startNanos = System.nanoTime();
+		}
+	}
+}
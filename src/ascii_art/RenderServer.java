@@ -0,0 +1,591 @@
+package ascii_art;
+
+import ascii_output.AsciiRowSink;
+import ascii_output.HtmlAsciiOutput;
+import ascii_output.TextAsciiOutput;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import image.BrightnessPyramid;
+import image.Image;
+import image.ImageProcessor;
+import image.IntegralImage;
+import image.TileBrightnessSource;
+import image.UnpaddedTileGrid;
+import image_char_matching.RoundingMode;
+import image_char_matching.SubImgCharMatcher;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code RenderServer} class serves ASCII-art rendering over HTTP, using only the JDK's
+ * built-in {@link HttpServer}.
+ *
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /render?res=n&chars=spec[,spec...]&round=up|down|abs&format=text|html
+ *     &padded=true|false} - the request body is an image file; the response is its ASCII
+ *     art. Parameters default as in {@link BatchConverter}.</li>
+ *     <li>{@code GET /metrics} - request, rejection and cache counters, one
+ *     {@code name value} pair per line.</li>
+ * </ul>
+ *
+ * <p>
+ * Requests run on a fixed pool of worker threads fed by a bounded queue. When the queue is
+ * full, the exchange falls back to the server's dispatcher thread, which answers 503 with a
+ * {@code Retry-After} header at once instead of rendering, so overload is pushed back to the
+ * clients rather than piling up in memory. (The platform threads of this pool stand in for
+ * virtual threads, which this JDK does not have; rendering is CPU-bound, so a pool sized to the
+ * cores is what virtual threads would be throttled to anyway.)
+ * </p>
+ *
+ * <p>
+ * The glyph brightness cache is shared by every request. Each uploaded image is identified by
+ * the SHA-256 of its bytes, and its integral image, with the pyramid and unpadded grid built
+ * over it, is kept in an LRU cache, so repeated renders of the same image at any
+ * resolution skip decoding. The cache is bounded by the estimated size of the integral images
+ * it holds rather than by their number, since one large photo can outweigh hundreds of small
+ * icons. Matchers are shared per charset and rounding mode; they are read-only once built.
+ * </p>
+ *
+ * <p>
+ * Decoding an image briefly holds the decoded raster, the packed pixels and the summed-area
+ * table at once, about {@link #DECODE_BYTES_PER_PIXEL} bytes per pixel. Half the heap is set
+ * aside for decodes, shared by the workers, which may all decode at the same time; the dimensions
+ * of a new image are read from its header first, and an image that does not fit its worker's
+ * share, or has more than {@link #MAX_PIXELS} pixels, is refused with 413 without being decoded. The default cache takes at most a quarter of
+ * the heap, which leaves the rest for rendering.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class RenderServer {
+	private static final String USAGE_MSG = "Usage: RenderServer [--port n] [--workers n]" +
+			" [--queue n] [--cache megabytes]";
+	private static final String PORT_OPTION = "--port";
+	private static final String WORKERS_OPTION = "--workers";
+	private static final String QUEUE_OPTION = "--queue";
+	private static final String CACHE_OPTION = "--cache";
+	private static final String RENDER_PATH = "/render";
+	private static final String METRICS_PATH = "/metrics";
+	private static final String POST_METHOD = "POST";
+	private static final String RES_PARAM = "res";
+	private static final String CHARS_PARAM = "chars";
+	private static final String ROUND_PARAM = "round";
+	private static final String FORMAT_PARAM = "format";
+	private static final String PADDED_PARAM = "padded";
+	private static final String ABS_MSG = "abs";
+	private static final String TEXT_FORMAT = "text";
+	private static final String HTML_FORMAT = "html";
+	private static final String DEFAULT_CHARS = "0-9";
+	private static final String CONTENT_TYPE = "Content-Type";
+	private static final String TEXT_TYPE = "text/plain; charset=utf-8";
+	private static final String HTML_TYPE = "text/html; charset=utf-8";
+	private static final String RETRY_AFTER = "Retry-After";
+	private static final String RETRY_SECONDS = "1";
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final String FONT_NAME = "Courier New";
+	private static final String WORKER_NAME = "render-worker-";
+	private static final String QUERY_SEPARATOR = "&";
+	private static final String VALUE_SEPARATOR = "=";
+	private static final String LISTENING_MSG = "Listening on port %d with %d workers," +
+			" a queue of %d, images of up to %d pixels and a %d MB cache.%n";
+	private static final String BUSY_MSG = "Server busy, retry later.\n";
+	private static final String METHOD_MSG = "Use POST with the image as the body.\n";
+	private static final String TOO_LARGE_MSG = "Image too large.\n";
+	private static final String TOO_MANY_PIXELS_MSG = "Image has too many pixels.\n";
+	private static final String UNREADABLE_MSG = "Unsupported image format.\n";
+	private static final String INCORRECT_RES_MSG = "Resolution must be a positive number" +
+			" (a power of two with padded=true).";
+	private static final String INCORRECT_FORMAT_MSG = "Format must be text or html.";
+	private static final String SMALL_CHARSET_MSG = "Charset is too small.";
+	private static final String RES_BOUND_MSG = "Resolution exceeds the image boundaries.";
+	private static final String NOT_FOUND_MSG = "Not found.\n";
+	private static final int HTTP_OK = 200;
+	private static final int HTTP_BAD_REQUEST = 400;
+	private static final int HTTP_NOT_FOUND = 404;
+	private static final int HTTP_BAD_METHOD = 405;
+	private static final int HTTP_TOO_LARGE = 413;
+	private static final int HTTP_UNSUPPORTED = 415;
+	private static final int HTTP_UNAVAILABLE = 503;
+	private static final int CHUNKED = 0;
+	private static final int DEFAULT_PORT = 8080;
+	private static final int DEFAULT_RES = 64;
+	private static final int DEFAULT_QUEUE_PER_WORKER = 4;
+	private static final int DEFAULT_CACHE_MEGABYTES = 512;
+	private static final int BYTES_PER_MEGABYTE = 1 << 20;
+	private static final long MAX_PIXELS = 1L << 26;
+	private static final int DECODE_BYTES_PER_PIXEL = 16;
+	private static final int DECODE_HEAP_SHARE = 2;
+	private static final int CACHE_HEAP_SHARE = 4;
+	private static final int FIRST_IMAGE_INDEX = 0;
+	private static final int UNSUPPORTED = -1;
+	private static final int MAX_MATCHERS = 256;
+	private static final int MAX_BODY_BYTES = 64 << 20;
+	private static final int BACKLOG = 0;
+	private static final int MIN_NUM_ONE = 1;
+	private static final int MIN_CHARSET_SIZE = 2;
+	private static final int STOP_DELAY_SECONDS = 1;
+	private static final double NANOS_PER_SECOND = 1e9;
+	private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	static {
+		// Headers and body are separate writes; without TCP_NODELAY, small responses stall
+		// on Nagle's algorithm against the client's delayed ACK for about 40 ms
+		if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+			System.setProperty(NO_DELAY_PROPERTY, Boolean.TRUE.toString());
+		}
+	}
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+	private final Map<String, CachedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+	private final long cacheBytes;
+	private final long maxPixels;
+	private long cachedBytes;
+	private final Map<String, SubImgCharMatcher> matchers = new ConcurrentHashMap<>();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder rendered = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder imageHits = new LongAdder();
+	private final LongAdder imageMisses = new LongAdder();
+	private final LongAdder renderNanos = new LongAdder();
+
+	/**
+	 * Creates a server bound to the given address; call {@link #start()} to serve.
+	 *
+	 * @param address       the address to listen on; port 0 picks a free port
+	 * @param workerCount   the number of rendering workers
+	 * @param queueCapacity the number of requests that may wait for a worker
+	 * @param cacheBytes    the estimated number of bytes of decoded images kept in memory
+	 * @throws IOException if the address cannot be bound
+	 */
+	public RenderServer(InetSocketAddress address, int workerCount, int queueCapacity,
+						long cacheBytes) throws IOException {
+		AtomicInteger workerIndex = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				task -> new RenderWorker(task, WORKER_NAME + workerIndex.incrementAndGet()),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.cacheBytes = cacheBytes;
+		this.maxPixels = Math.min(MAX_PIXELS, Runtime.getRuntime().maxMemory() / DECODE_HEAP_SHARE /
+				workerCount / DECODE_BYTES_PER_PIXEL);
+		this.server = HttpServer.create(address, BACKLOG);
+		server.setExecutor(workers);
+		server.createContext(RENDER_PATH, this::handleRender);
+		server.createContext(METRICS_PATH, this::handleMetrics);
+		server.createContext("/", exchange -> respond(exchange, HTTP_NOT_FOUND, NOT_FOUND_MSG));
+	}
+
+	/**
+	 * Starts serving requests in the background.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waits briefly for open exchanges, and stops the workers.
+	 */
+	public void stop() {
+		server.stop(STOP_DELAY_SECONDS);
+		workers.shutdown();
+	}
+
+	/**
+	 * Returns the largest number of pixels an uploaded image may have.
+	 *
+	 * @return the pixel limit
+	 */
+	public long getMaxPixels() {
+		return maxPixels;
+	}
+
+	/**
+	 * Returns the port the server is bound to.
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Handles {@code /render}: decodes (or finds) the image and streams its ASCII art.
+	 */
+	private void handleRender(HttpExchange exchange) throws IOException {
+		requests.increment();
+		if (!(Thread.currentThread() instanceof RenderWorker)) {
+			// The queue was full and the dispatcher is running this exchange itself
+			rejected.increment();
+			exchange.getResponseHeaders().set(RETRY_AFTER, RETRY_SECONDS);
+			respond(exchange, HTTP_UNAVAILABLE, BUSY_MSG);
+			return;
+		}
+		if (!exchange.getRequestMethod().equals(POST_METHOD)) {
+			respond(exchange, HTTP_BAD_METHOD, METHOD_MSG);
+			return;
+		}
+		long start = System.nanoTime();
+		boolean headersSent = false;
+		try {
+			Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+			int res = parseRes(params.get(RES_PARAM));
+			boolean padded = Boolean.parseBoolean(params.get(PADDED_PARAM));
+			String format = params.getOrDefault(FORMAT_PARAM, TEXT_FORMAT);
+			if (!format.equals(TEXT_FORMAT) && !format.equals(HTML_FORMAT)) {
+				throw new IOException(INCORRECT_FORMAT_MSG);
+			}
+			if (padded && Integer.bitCount(res) != MIN_NUM_ONE) {
+				throw new IOException(INCORRECT_RES_MSG);
+			}
+			SubImgCharMatcher matcher = getMatcher(params.getOrDefault(CHARS_PARAM, DEFAULT_CHARS),
+					params.getOrDefault(ROUND_PARAM, ABS_MSG));
+
+			byte[] body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				respond(exchange, HTTP_TOO_LARGE, TOO_LARGE_MSG);
+				return;
+			}
+			String key = digest(body);
+			CachedImage image = getCachedImage(key);
+			if (image == null) {
+				long pixels = countPixels(body);
+				if (pixels > maxPixels) {
+					respond(exchange, HTTP_TOO_LARGE, TOO_MANY_PIXELS_MSG);
+					return;
+				}
+				image = pixels == UNSUPPORTED ? null : decodeImage(key, body);
+			}
+			if (image == null) {
+				respond(exchange, HTTP_UNSUPPORTED, UNREADABLE_MSG);
+				return;
+			}
+			if (res < Math.max(MIN_NUM_ONE, image.width / image.height) || res > image.width) {
+				throw new IOException(RES_BOUND_MSG);
+			}
+
+			TileBrightnessSource tiles = padded ? image.pyramid : image.grid;
+			boolean html = format.equals(HTML_FORMAT);
+			exchange.getResponseHeaders().set(CONTENT_TYPE, html ? HTML_TYPE : TEXT_TYPE);
+			exchange.sendResponseHeaders(HTTP_OK, CHUNKED);
+			headersSent = true;
+			try (OutputStream out = exchange.getResponseBody()) {
+				WritableByteChannel channel = Channels.newChannel(out);
+				HtmlAsciiOutput htmlOutput = html ? new HtmlAsciiOutput(channel, FONT_NAME) : null;
+				AsciiRowSink sink = html ? htmlOutput : new TextAsciiOutput(channel);
+				new AsciiArtAlgorithm(tiles, res, matcher, null).run(sink);
+				if (html && htmlOutput.getFailure() != null) {
+					throw htmlOutput.getFailure();
+				}
+			}
+			rendered.increment();
+			renderNanos.add(System.nanoTime() - start);
+		} catch (IOException e) {
+			failed.increment();
+			if (headersSent) {
+				// The status line is already out; all that is left is to cut the response short
+				exchange.close();
+			} else {
+				respond(exchange, HTTP_BAD_REQUEST, e.getMessage() + "\n");
+			}
+		} catch (UncheckedIOException e) {
+			// The client went away mid-response
+			failed.increment();
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Handles {@code /metrics}: writes every counter as a {@code name value} line.
+	 */
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		long renderCount = rendered.sum();
+		String metrics = String.format(
+				"requests_total %d\n" +
+						"rendered_total %d\n" +
+						"rejected_total %d\n" +
+						"failed_total %d\n" +
+						"queue_depth %d\n" +
+						"active_workers %d\n" +
+						"image_cache_hits %d\n" +
+						"image_cache_misses %d\n" +
+						"image_cache_size %d\n" +
+						"image_cache_bytes %d\n" +
+						"matcher_cache_size %d\n" +
+						"render_seconds_total %.6f\n" +
+						"render_seconds_avg %.6f\n",
+				requests.sum(), renderCount, rejected.sum(), failed.sum(),
+				workers.getQueue().size(), workers.getActiveCount(),
+				imageHits.sum(), imageMisses.sum(), getCacheSize(), getCachedBytes(), matchers.size(),
+				renderNanos.sum() / NANOS_PER_SECOND,
+				renderCount == 0 ? 0 : renderNanos.sum() / NANOS_PER_SECOND / renderCount);
+		respond(exchange, HTTP_OK, metrics);
+	}
+
+	/**
+	 * Returns the cached image with the given digest, marking it as recently used.
+	 *
+	 * @return the image, or {@code null} if it is not cached
+	 */
+	private synchronized CachedImage getCachedImage(String key) {
+		CachedImage image = images.get(key);
+		if (image != null) {
+			imageHits.increment();
+		} else {
+			imageMisses.increment();
+		}
+		return image;
+	}
+
+	/**
+	 * Reads the dimensions of an encoded image from its header, without decoding its pixels.
+	 *
+	 * @return the number of pixels, or {@link #UNSUPPORTED} if no reader supports the format
+	 */
+	private static long countPixels(byte[] body) throws IOException {
+		try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(body))) {
+			Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+			if (readers == null || !readers.hasNext()) {
+				return UNSUPPORTED;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				return (long) reader.getWidth(FIRST_IMAGE_INDEX) * reader.getHeight(FIRST_IMAGE_INDEX);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Decodes an image and caches it under its digest, evicting the least recently used images
+	 * until the cache fits its byte budget again. An image larger than the whole budget is
+	 * returned without being cached.
+	 *
+	 * @return the image, or {@code null} if its format is not supported
+	 */
+	private CachedImage decodeImage(String key, byte[] body) throws IOException {
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(body));
+		if (decoded == null) {
+			return null;
+		}
+		CachedImage image = new CachedImage(new Image(decoded));
+		if (image.bytes > cacheBytes) {
+			return image;
+		}
+		synchronized (this) {
+			CachedImage replaced = images.put(key, image);
+			cachedBytes += image.bytes - (replaced == null ? 0 : replaced.bytes);
+			Iterator<CachedImage> eldest = images.values().iterator();
+			while (cachedBytes > cacheBytes) {
+				cachedBytes -= eldest.next().bytes;
+				eldest.remove();
+			}
+		}
+		return image;
+	}
+
+	private synchronized int getCacheSize() {
+		return images.size();
+	}
+
+	private synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * Returns the shared matcher for a charset and rounding mode, building it on first use.
+	 */
+	private SubImgCharMatcher getMatcher(String chars, String round) throws IOException {
+		RoundingMode roundingMode = ArgumentParser.parseRoundingMode(round);
+		String key = chars + VALUE_SEPARATOR + roundingMode;
+		SubImgCharMatcher matcher = matchers.get(key);
+		if (matcher != null) {
+			return matcher;
+		}
+		Set<Character> charset = new TreeSet<>();
+		ArgumentParser.parseChars(chars, charset);
+		if (charset.size() < MIN_CHARSET_SIZE) {
+			throw new IOException(SMALL_CHARSET_MSG);
+		}
+		char[] charArray = new char[charset.size()];
+		int index = 0;
+		for (char c : charset) {
+			charArray[index++] = c;
+		}
+		matcher = new SubImgCharMatcher(charArray);
+		matcher.setRoundingMode(roundingMode);
+		if (matchers.size() >= MAX_MATCHERS) {
+			matchers.clear();
+		}
+		matchers.put(key, matcher);
+		return matcher;
+	}
+
+	/**
+	 * Parses the resolution parameter, defaulting when absent.
+	 */
+	private static int parseRes(String value) throws IOException {
+		return value == null ? DEFAULT_RES : ArgumentParser.parsePositive(value, INCORRECT_RES_MSG);
+	}
+
+	/**
+	 * Splits a raw query string into decoded parameters.
+	 */
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new HashMap<>();
+		if (query == null) {
+			return params;
+		}
+		for (String pair : query.split(QUERY_SEPARATOR)) {
+			int separator = pair.indexOf(VALUE_SEPARATOR);
+			if (separator > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * Reads a request body up to {@link #MAX_BODY_BYTES}.
+	 *
+	 * @return the body, or {@code null} if it is larger
+	 */
+	private static byte[] readBody(InputStream in) throws IOException {
+		byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+		return body.length > MAX_BODY_BYTES ? null : body;
+	}
+
+	/**
+	 * Returns the hexadecimal SHA-256 of some bytes.
+	 */
+	private static String digest(byte[] bytes) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : MessageDigest.getInstance(DIGEST_ALGORITHM).digest(bytes)) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Sends a complete plain-text response and closes the exchange.
+	 */
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set(CONTENT_TYPE, TEXT_TYPE);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * A decoded image with the brightness structures built over it, shared between requests.
+	 */
+	private static final class CachedImage {
+		private final int width;
+		private final int height;
+		private final long bytes;
+		private final UnpaddedTileGrid grid;
+		private final BrightnessPyramid pyramid;
+
+		CachedImage(Image image) {
+			this.width = image.getWidth();
+			this.height = image.getHeight();
+			// The summed-area table dominates; tile levels hold one value per tile and are
+			// built on demand, so they are left out of the estimate
+			this.bytes = (long) (width + 1) * (height + 1) * Long.BYTES;
+			IntegralImage integralImage = new IntegralImage(ImageProcessor.padVirtually(image));
+			this.grid = new UnpaddedTileGrid(integralImage);
+			this.pyramid = new BrightnessPyramid(integralImage);
+		}
+	}
+
+	/**
+	 * The thread type of the rendering workers, telling them apart from the dispatcher.
+	 */
+	private static final class RenderWorker extends Thread {
+		RenderWorker(Runnable task, String name) {
+			super(task, name);
+		}
+	}
+
+	/**
+	 * Entry point of the rendering server.
+	 * Run with {@code -DglyphCache=<file>} to reuse glyph brightness values between runs;
+	 * the cache is saved when the server is stopped.
+	 *
+	 * @param args options; see {@link #USAGE_MSG}
+	 * @throws IOException if the arguments are invalid or the port cannot be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int workerCount = Runtime.getRuntime().availableProcessors();
+		int queueCapacity = -1;
+		int cacheMegabytes = (int) Math.min(DEFAULT_CACHE_MEGABYTES,
+				Runtime.getRuntime().maxMemory() / CACHE_HEAP_SHARE / BYTES_PER_MEGABYTE);
+		for (int i = 0; i < args.length; i += 2) {
+			String value = i + 1 < args.length ? args[i + 1] : "";
+			switch (args[i]) {
+				case PORT_OPTION -> port = ArgumentParser.parsePositive(value, USAGE_MSG);
+				case WORKERS_OPTION -> workerCount = ArgumentParser.parsePositive(value, USAGE_MSG);
+				case QUEUE_OPTION -> queueCapacity = ArgumentParser.parsePositive(value, USAGE_MSG);
+				case CACHE_OPTION -> cacheMegabytes = ArgumentParser.parsePositive(value, USAGE_MSG);
+				default -> throw new IOException(USAGE_MSG);
+			}
+		}
+		if (queueCapacity < 0) {
+			queueCapacity = workerCount * DEFAULT_QUEUE_PER_WORKER;
+		}
+
+		Shell.loadGlyphCache();
+		RenderServer server = new RenderServer(new InetSocketAddress(port), workerCount,
+				queueCapacity, (long) cacheMegabytes * BYTES_PER_MEGABYTE);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop();
+			try {
+				Shell.saveGlyphCache();
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+			}
+		}));
+		server.start();
+		System.out.printf(LISTENING_MSG, server.getPort(), workerCount, queueCapacity,
+				server.getMaxPixels(), cacheMegabytes);
+	}
+}
@@ -2,15 +2,31 @@ package ascii_art;
 
 import ascii_output.ConsoleAsciiOutput;
 import ascii_output.HtmlAsciiOutput;
+import image.BrightnessPyramid;
 import image.Image;
+import image.ImageProcessor;
+import image.IntegralImage;
+import image.PaddedImage;
+import image.StripImageLoader;
+import image.TileBrightnessSource;
+import image.UnpaddedTileGrid;
+import image_char_matching.GlyphBrightnessCache;
 import image_char_matching.RoundingMode;
 import image_char_matching.SubImgCharMatcher;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The {@code Shell} class provides an interactive command-line interface for users
@@ -25,13 +41,22 @@ import java.util.TreeSet;
  *   <li>{@code remove [char|range|all|space]} - remove characters from the charset</li>
  *   <li>{@code chars} - display the current character set</li>
  *   <li>{@code res up/down} - increase or decrease image resolution</li>
- *   <li>{@code output html/console} - select the output method</li>
+ *   <li>{@code res n} - set any resolution, dividing the unpadded image into n tiles per row</li>
+ *   <li>{@code output html [gzip]/console [compact]} - select the output method</li>
  *   <li>{@code asciiArt} - generate and display the ASCII art</li>
  *   <li>{@code round up/down/abs} - change rounding strategy</li>
+ *   <li>{@code threads [n]} - set the number of worker threads used to compute tiles</li>
+ *   <li>{@code stats [on|off]} - print per-stage timings of the last run, or toggle them</li>
  * </ul>
  * <p>
- * The shell maintains internal consistency by marking its matcher and algorithm as "dirty"
- * when configuration changes, and reinitialized them when needed.
+ * With {@code --script <file>} (or {@code --script -} for standard input) after the image,
+ * the whole command list is read, planned and run at once; see {@link #runScript}.
+ * </p>
+ * <p>
+ * The shell keeps a single matcher that charset and rounding commands update in place,
+ * and marks its algorithm as "dirty" only when the image, resolution or thread count
+ * changes. A charset or rounding change therefore never rebuilds the image index: the
+ * render only re-reads tile brightness from it, one band at a time, and redoes the mapping.
  * </p>
  *
  * @author Eyal and Dana
@@ -59,12 +84,24 @@ public class Shell {
 			= "Did not change resolution due to incorrect format.";
 	private static final String INCORRECT_RES_BOUND_MSG
 			= "Did not change resolution due to exceeding boundaries.";
+	private static final String INCORRECT_RES_SOURCE_MSG
+			= "Did not change resolution: arbitrary resolutions need the full image in memory.";
 	private static final String INCORRECT_OUTPUT_MSG = "Did not change output method due" +
 			" to incorrect format.";
 	private static final String INCORRECT_ASCII_MSG = "Did not execute. Charset is too small.";
 	private static final String INCORRECT_OUTPUT_FORMAT_MSG = "Did not execute due to incorrect command.";
 	private static final String INCORRECT_ROUNDING_MODE_MSG = "Did not change rounding" +
 			" method due to incorrect format.";
+	private static final String THREADS_MSG = "threads";
+	private static final String INCORRECT_THREADS_MSG = "Did not change number of threads" +
+			" due to incorrect format.";
+	private static final String THREADS_SET_TO = "Threads set to ";
+	private static final String STATS_MSG = "stats";
+	private static final String ON_MSG = "on";
+	private static final String OFF_MSG = "off";
+	private static final String STATS_SET_TO = "Stats turned ";
+	private static final String STATS_OFF_MSG = "Stats are off. Turn them on with \"stats on\".";
+	private static final String INCORRECT_STATS_MSG = "Did not execute stats due to incorrect format.";
 	private static final String[] OUTPUT_OPTIONS = {"html", "console"};
 	private static final int MIN_NUM_ONE = 1;
 	private static final String SPLIT_STRING = " ";
@@ -79,24 +116,50 @@ public class Shell {
 	private static final String HTML_MSG = "html";
 	private static final String CONSOLE_MSG = "console";
 	private static final String OUTPUT_HTML_FILENAME = "output.html";
+	private static final String GZIP_MSG = "gzip";
+	private static final String COMPACT_MSG = "compact";
+	private static final int OUTPUT_OPTION_INDEX = 2;
 	private static final String FONT_NAME = "Courier New";
 	private static final String CMD_MSG = ">>> ";
 	private static final int NEW_RES_FACTOR = 2;
 	private static final String RESOLUTION_SET_TO = "Resolution set to ";
 	private static final String DOT = ".";
+	private static final String GLYPH_CACHE_PROPERTY = "glyphCache";
+	private static final String GLYPH_CACHE_WARNING_MSG = "Ignoring unreadable glyph cache: ";
+	private static final String STREAM_RES_PROPERTY = "streamRes";
+	private static final String INCORRECT_STREAM_RES_MSG =
+			"Did not load the image: streamRes must be a positive number.";
+	private static final String SUBSAMPLE_PROPERTY = "subsample";
+	private static final int SUBSAMPLE_HEADROOM = 4;
+	private static final String SCRIPT_OPTION = "--script";
+	private static final String STDIN_SCRIPT = "-";
+	private static final int STARTUP_FAILURE_STATUS = 1;
+	private static final int SCRIPT_OPTION_INDEX = 1;
+	private static final int SCRIPT_FILE_INDEX = 2;
+	private static final double NANOS_PER_MILLI = 1e6;
+	private static final String SCRIPT_SUMMARY_MSG = "Ran %d commands in %.1f ms" +
+			" (%d matcher updates merged, %d overwritten renders skipped).%n";
 
 
 	Set<Character> charset;
 	int res;
 	private Image image;
+	private BrightnessPyramid pyramid;
+	private StripImageLoader subsampledLoader;
+	private UnpaddedTileGrid unpaddedGrid;
+	private boolean unpadded = false;
 	private int maxCharsInRow;
 	private int minCharsInRow;
 	private String output = CONSOLE_MSG;
+	private boolean compressHtml = false;
+	private boolean compactConsole = false;
 	private RoundingMode roundingMode;
-	private SubImgCharMatcher matcher;
-	private boolean matcherDirty = true;
+	SubImgCharMatcher matcher;
 	private AsciiArtAlgorithm asciiAlgo;
 	private boolean asciiAlgoDirty = true;
+	private boolean deferMatcherUpdates = false;
+	private int threads = MIN_NUM_ONE;
+	private ForkJoinPool pool;
 
 	/**
 	 * Constructs a Shell instance with default character set and resolution.
@@ -107,6 +170,7 @@ public class Shell {
 		this.roundingMode = RoundingMode.NEAREST;
 		char[] arrChar = toCharArray(charset);
 		this.matcher = new SubImgCharMatcher(arrChar);
+		matcher.setRoundingMode(this.roundingMode);
 	}
 
 
@@ -125,42 +189,240 @@ public class Shell {
 				String action = KeyboardInput.readLine();
 
 				if (action.startsWith(EXIT_MSG)) break;
-				else if (action.startsWith(CHARS_MSG)) {
-					charsCmd();
-				} else if (action.startsWith(ADD_MSG)) {
-					addCmd(action);
-					matcherDirty = true;
-				} else if (action.startsWith(REMOVE_MSG)) {
-					removeCmd(action);
-					matcherDirty = true;
-				} else if (action.startsWith(RES_MSG)) resCmd(action);
-				else if (action.startsWith(OUTPUT_MSG)) outputCmd(action);
-				else if (action.startsWith(ASCII_MSG)) asciiCmd();
-				else if (action.startsWith(ROUND_MSG)) roundCmd(action);
-				else {
-					throw new IOException(INCORRECT_OUTPUT_FORMAT_MSG);
+				execute(action, true);
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
+			}
+		}
+
+	}
+
+	/**
+	 * Runs a whole list of commands non-interactively, with the same effects and messages as
+	 * typing them one by one (without the prompts), and reports the total time.
+	 * <p>
+	 * The list is planned before it runs. Commands after the first "exit" are dropped, and
+	 * steps whose work would be redone or thrown away are merged:
+	 * <ul>
+	 *     <li>A run of consecutive "add" and "remove" commands updates the charset one
+	 *     command at a time, but the matcher only once, with the net change.</li>
+	 *     <li>An "asciiArt" followed by another "asciiArt" with no "add", "remove", "output"
+	 *     or "stats" in between is not rendered when the output is HTML, because the later one
+	 *     overwrites the same file and is certain to succeed too.</li>
+	 * </ul>
+	 *
+	 * @param imageName the path to the image to be processed
+	 * @param commands  the commands to run, one per element
+	 * @throws IOException if image loading fails
+	 */
+	public void runScript(String imageName, List<String> commands) throws IOException {
+		long start = System.nanoTime();
+		extractImg(imageName);
+		List<String> script = new ArrayList<>();
+		for (String command : commands) {
+			String action = command.trim();
+			if (action.startsWith(EXIT_MSG)) break;
+			script.add(action);
+		}
+		boolean[] overwritten = planOverwrittenRenders(script);
+
+		int mergedUpdates = 0;
+		int skippedRenders = 0;
+		Set<Character> charsetBeforeRun = null;
+		for (int i = 0; i < script.size(); i++) {
+			String action = script.get(i);
+			boolean charsetCommand = isCharsetCommand(action);
+			if (charsetCommand && charsetBeforeRun == null) {
+				charsetBeforeRun = new TreeSet<>(charset);
+				deferMatcherUpdates = true;
+			} else if (charsetCommand) {
+				mergedUpdates++;
+			} else if (charsetBeforeRun != null) {
+				applyCharsetChange(charsetBeforeRun);
+				charsetBeforeRun = null;
+			}
+			try {
+				boolean render = !(overwritten[i] && Objects.equals(output, HTML_MSG));
+				if (!render && action.startsWith(ASCII_MSG)) {
+					skippedRenders++;
 				}
+				execute(action, render);
 			} catch (IOException e) {
 				System.out.println(e.getMessage());
 			}
 		}
+		if (charsetBeforeRun != null) {
+			applyCharsetChange(charsetBeforeRun);
+		}
+		System.out.printf(SCRIPT_SUMMARY_MSG, script.size(),
+				(System.nanoTime() - start) / NANOS_PER_MILLI, mergedUpdates, skippedRenders);
+	}
+
+	/**
+	 * Runs a single command.
+	 *
+	 * @param action the command, without surrounding whitespace
+	 * @param render whether "asciiArt" should render; see {@link #asciiCmd(boolean)}
+	 * @throws IOException if the command is invalid or fails
+	 */
+	private void execute(String action, boolean render) throws IOException {
+		if (action.startsWith(CHARS_MSG)) {
+			charsCmd();
+		} else if (action.startsWith(ADD_MSG)) {
+			addCmd(action);
+		} else if (action.startsWith(REMOVE_MSG)) {
+			removeCmd(action);
+		} else if (action.startsWith(RES_MSG)) resCmd(action);
+		else if (action.startsWith(OUTPUT_MSG)) outputCmd(action);
+		else if (action.startsWith(ASCII_MSG)) asciiCmd(render);
+		else if (action.startsWith(ROUND_MSG)) roundCmd(action);
+		else if (action.startsWith(THREADS_MSG)) threadsCmd(action);
+		else if (action.startsWith(STATS_MSG)) statsCmd(action);
+		else {
+			throw new IOException(INCORRECT_OUTPUT_FORMAT_MSG);
+		}
+	}
+
+	/**
+	 * Returns whether a command is an "add" or "remove", as {@link #execute} dispatches it.
+	 */
+	private static boolean isCharsetCommand(String action) {
+		return !action.startsWith(CHARS_MSG) &&
+				(action.startsWith(ADD_MSG) || action.startsWith(REMOVE_MSG));
+	}
+
+	/**
+	 * Returns whether a command observes something an "asciiArt" leaves behind other than its
+	 * output file, such as the metrics of the last run, so that render cannot be skipped.
+	 */
+	private static boolean readsRenderState(String action) {
+		return action.startsWith(STATS_MSG);
+	}
+
+	/**
+	 * Marks every "asciiArt" whose HTML file would be overwritten by a later "asciiArt"
+	 * before anything could change whether that later one succeeds or where it writes.
+	 *
+	 * @param script the planned commands
+	 * @return for every command, whether it is such an "asciiArt"
+	 */
+	private static boolean[] planOverwrittenRenders(List<String> script) {
+		boolean[] overwritten = new boolean[script.size()];
+		boolean laterRender = false;
+		for (int i = script.size() - 1; i >= 0; i--) {
+			String action = script.get(i);
+			if (action.startsWith(ASCII_MSG)) {
+				overwritten[i] = laterRender;
+				laterRender = true;
+			} else if (isCharsetCommand(action) || action.startsWith(OUTPUT_MSG) ||
+					readsRenderState(action)) {
+				laterRender = false;
+			}
+		}
+		return overwritten;
+	}
 
+	/**
+	 * Ends a run of deferred charset commands by applying their net change to the matcher
+	 * in one batch.
+	 *
+	 * @param charsetBeforeRun the charset before the run started
+	 */
+	private void applyCharsetChange(Set<Character> charsetBeforeRun) {
+		deferMatcherUpdates = false;
+		Set<Character> removed = new TreeSet<>(charsetBeforeRun);
+		removed.removeAll(charset);
+		Set<Character> added = new TreeSet<>(charset);
+		added.removeAll(charsetBeforeRun);
+		if (!removed.isEmpty()) {
+			matcher.removeChars(toCharArray(removed));
+		}
+		if (!added.isEmpty()) {
+			matcher.addChars(toCharArray(added));
+		}
 	}
 
 	/**
-	 * Loads the image from the given file name and sets initial resolution bounds.
+	 * Loads the image from the given file name, builds its brightness pyramid
+	 * and sets initial resolution bounds.
+	 * <p>
+	 * When the {@code streamRes} system property is set, the image is instead decoded in
+	 * strips straight into a pyramid whose finest level is that resolution (rounded down to
+	 * a power of two), so the whole image is never held in memory. The resolution is then
+	 * capped at that level, the initial resolution included.
+	 * </p>
+	 * <p>
+	 * Otherwise, when the {@code subsample} system property is {@code true}, the image is
+	 * decoded box-filtered down to only as many pixels as the current resolution needs
+	 * (with some headroom), and reloaded at higher fidelity only when {@code res up}
+	 * goes beyond it. See {@link Image#loadDownscaled} for the accuracy bound.
+	 * </p>
 	 *
 	 * @param imageName the name/path of the image file
-	 * @throws IOException if the image cannot be loaded
+	 * @throws IOException if the image cannot be loaded, or {@code streamRes} is not positive
 	 */
 	private void extractImg(String imageName) throws IOException {
-		this.image = new Image(imageName);
+		int imgWidth;
+		int imgHeight;
+		String streamRes = System.getProperty(STREAM_RES_PROPERTY);
+		if (streamRes != null) {
+			int streamTilesPerRow = ArgumentParser.parsePositive(streamRes, INCORRECT_STREAM_RES_MSG);
+			StripImageLoader loader = new StripImageLoader(imageName);
+			imgWidth = loader.getWidth();
+			imgHeight = loader.getHeight();
+			int maxTilesPerRow = Integer.highestOneBit(
+					Math.min(streamTilesPerRow, imgWidth));
+			this.image = null;
+			// Decoding and indexing are interleaved strip by strip, so both count as decoding
+			PipelineMetrics.Span decode = PipelineMetrics.begin(PipelineMetrics.Stage.DECODE);
+			this.pyramid = loader.loadPyramid(maxTilesPerRow, StripImageLoader.DEFAULT_STRIP_HEIGHT);
+			PipelineMetrics.end(decode);
+			this.maxCharsInRow = maxTilesPerRow;
+		} else if (Boolean.getBoolean(SUBSAMPLE_PROPERTY)) {
+			this.subsampledLoader = new StripImageLoader(imageName);
+			imgWidth = subsampledLoader.getWidth();
+			imgHeight = subsampledLoader.getHeight();
+			this.maxCharsInRow = imgWidth;
+			loadSubsampled(DEFAULT_RES);
+		} else {
+			PipelineMetrics.Span decode = PipelineMetrics.begin(PipelineMetrics.Stage.DECODE);
+			this.image = new Image(imageName);
+			PipelineMetrics.end(decode);
+			PipelineMetrics.Span pad = PipelineMetrics.begin(PipelineMetrics.Stage.PAD);
+			PaddedImage paddedImage = ImageProcessor.padVirtually(image);
+			PipelineMetrics.end(pad);
+			PipelineMetrics.Span index = PipelineMetrics.begin(PipelineMetrics.Stage.INDEX);
+			this.pyramid = new BrightnessPyramid(new IntegralImage(paddedImage));
+			PipelineMetrics.end(index);
+			imgWidth = image.getWidth();
+			imgHeight = image.getHeight();
+			this.maxCharsInRow = imgWidth;
+		}
 		asciiAlgoDirty = true;
-		int imgWidth = image.getWidth();
-		int imgHeight = image.getHeight();
-		this.maxCharsInRow = imgWidth;
+		this.unpaddedGrid = null;
+		this.unpadded = false;
 		this.minCharsInRow = Math.max(MIN_NUM_ONE, imgWidth / imgHeight);
-		this.res = DEFAULT_RES;
+		// A streamRes of 1, or an image 1 pixel wide, leaves no room for the default
+		this.res = Math.min(DEFAULT_RES, maxCharsInRow);
+	}
+
+	/**
+	 * Decodes the subsampled image at the coarsest fidelity that serves the given resolution
+	 * with {@link #SUBSAMPLE_HEADROOM} to spare, and rebuilds the brightness pyramid from it.
+	 *
+	 * @param targetRes the resolution that must be served
+	 * @throws IOException if the image cannot be decoded
+	 */
+	private void loadSubsampled(int targetRes) throws IOException {
+		int factor = Integer.highestOneBit(Math.max(MIN_NUM_ONE,
+				subsampledLoader.getPaddedWidth() / targetRes / SUBSAMPLE_HEADROOM));
+		PipelineMetrics.Span decode = PipelineMetrics.begin(PipelineMetrics.Stage.DECODE);
+		this.image = subsampledLoader.loadDownscaled(factor, StripImageLoader.DEFAULT_STRIP_HEIGHT);
+		PipelineMetrics.end(decode);
+		PipelineMetrics.Span index = PipelineMetrics.begin(PipelineMetrics.Stage.INDEX);
+		this.pyramid = new BrightnessPyramid(new IntegralImage(image));
+		PipelineMetrics.end(index);
+		asciiAlgoDirty = true;
 	}
 
 	/**
@@ -177,14 +439,11 @@ public class Shell {
 		String specificRemove = parts[CHAR_LENGTH];
 		switch (specificRemove) {
 			case ALL_MSG:
-				for (char i = FIRST_ASCII_INDEX; i < AFTER_LAST_ASCII_INDEX; i++) {
-					this.charset.remove(i);
-					matcher.removeChar(i);
-				}
+				removeChars(ArgumentParser.charRange((char) FIRST_ASCII_INDEX,
+						(char) (AFTER_LAST_ASCII_INDEX - 1)));
 				return;
 			case SPACE_MSG:
-				this.charset.remove(SPACE_CHAR);
-				matcher.removeChar(SPACE_CHAR);
+				removeChars(new char[]{SPACE_CHAR});
 				return;
 		}
 		if (specificRemove.length() == CHAR_LENGTH) {
@@ -198,10 +457,7 @@ public class Shell {
 					charBRemove > FIRST_ASCII_INDEX && charBRemove < AFTER_LAST_ASCII_INDEX) {
 				char charStart = (char) Math.min(charARemove, charBRemove), charEnd =
 						(char) Math.max(charARemove, charBRemove);
-				for (char i = charStart; i <= charEnd; i++) {
-					this.charset.remove(i);
-					matcher.removeChar(i);
-				}
+				removeChars(ArgumentParser.charRange(charStart, charEnd));
 			}
 		} else {
 			throw new IOException(INCORRECT_REMOVE_MSG);
@@ -217,7 +473,9 @@ public class Shell {
 		char charToRemove = specificRemove.charAt(INDEX_FIRST_CHAR);
 		if (charToRemove > FIRST_ASCII_INDEX && charToRemove < AFTER_LAST_ASCII_INDEX) {
 			this.charset.remove(specificRemove.charAt(INDEX_FIRST_CHAR));
-			matcher.removeChar(specificRemove.charAt(INDEX_FIRST_CHAR));
+			if (!deferMatcherUpdates) {
+				matcher.removeChar(specificRemove.charAt(INDEX_FIRST_CHAR));
+			}
 		}
 	}
 
@@ -235,14 +493,11 @@ public class Shell {
 		String specificAdd = parts[CHAR_LENGTH];
 		switch (specificAdd) {
 			case ALL_MSG:
-				for (char i = FIRST_ASCII_INDEX; i < AFTER_LAST_ASCII_INDEX; i++) {
-					this.charset.remove(i);
-					matcher.addChar(i);
-				}
+				addChars(ArgumentParser.charRange((char) FIRST_ASCII_INDEX,
+						(char) (AFTER_LAST_ASCII_INDEX - 1)));
 				return;
 			case SPACE_MSG:
-				this.charset.add(SPACE_CHAR);
-				matcher.addChar(SPACE_CHAR);
+				addChars(new char[]{SPACE_CHAR});
 				return;
 		}
 		if (specificAdd.length() == CHAR_LENGTH) {
@@ -255,10 +510,7 @@ public class Shell {
 					charBAdd > FIRST_ASCII_INDEX && charBAdd < AFTER_LAST_ASCII_INDEX) {
 				char charStart = (char) Math.min(charAAdd, charBAdd), charEnd =
 						(char) Math.max(charAAdd, charBAdd);
-				for (char i = charStart; i <= charEnd; i++) {
-					this.charset.add(i);
-					matcher.addChar(i);
-				}
+				addChars(ArgumentParser.charRange(charStart, charEnd));
 			}
 		} else {
 			throw new IOException(INCORRECT_ADD_MSG);
@@ -275,12 +527,42 @@ public class Shell {
 		char charToAdd = specificAdd.charAt(INDEX_FIRST_CHAR);
 		if (charToAdd > FIRST_ASCII_INDEX && charToAdd < AFTER_LAST_ASCII_INDEX) {
 			this.charset.add(charToAdd);
-			matcher.addChar(charToAdd);
+			if (!deferMatcherUpdates) {
+				matcher.addChar(charToAdd);
+			}
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Adds characters to the charset and to the matcher in a single batch.
+	 *
+	 * @param chars the characters to add
+	 */
+	private void addChars(char[] chars) {
+		for (char c : chars) {
+			this.charset.add(c);
+		}
+		if (!deferMatcherUpdates) {
+			matcher.addChars(chars);
+		}
+	}
+
+	/**
+	 * Removes characters from the charset and from the matcher in a single batch.
+	 *
+	 * @param chars the characters to remove
+	 */
+	private void removeChars(char[] chars) {
+		for (char c : chars) {
+			this.charset.remove(c);
+		}
+		if (!deferMatcherUpdates) {
+			matcher.removeChars(chars);
+		}
+	}
+
 	/**
 	 * Prints the current character set in ASCII order.
 	 */
@@ -294,7 +576,13 @@ public class Shell {
 	}
 
 	/**
-	 * Parses and applies a resolution change command ("res up" or "res down").
+	 * Parses and applies a resolution change command ("res up", "res down" or "res n").
+	 * <p>
+	 * A numeric resolution divides the original, unpadded image into exactly that many
+	 * tiles per row, whether or not it is a power of two, and later "res up"/"res down"
+	 * keep doing so. It needs the full-resolution integral image, so it is not available
+	 * when the image is streamed or subsampled.
+	 * </p>
 	 *
 	 * @param action the full command input
 	 * @throws IOException if the format is invalid or bounds are exceeded
@@ -311,17 +599,44 @@ public class Shell {
 		int newRes = switch (param) {
 			case UP_MSG -> res * NEW_RES_FACTOR;
 			case DOWN_MSG -> res / NEW_RES_FACTOR;
-			default -> throw new IOException(INCORRECT_RES_FORMAT_MSG);
+			default -> parseRes(param);
 		};
+		boolean newUnpadded = unpadded || !(param.equals(UP_MSG) || param.equals(DOWN_MSG));
 
 		if (newRes < minCharsInRow || newRes > maxCharsInRow) {
 			throw new IOException(INCORRECT_RES_BOUND_MSG);
 		}
+		if (newUnpadded && unpaddedGrid == null) {
+			IntegralImage integralImage = pyramid.getIntegralImage();
+			if (integralImage == null || subsampledLoader != null) {
+				throw new IOException(INCORRECT_RES_SOURCE_MSG);
+			}
+			unpaddedGrid = new UnpaddedTileGrid(integralImage);
+		}
+		unpadded = newUnpadded;
+		if (subsampledLoader != null && newRes > pyramid.getMaxTilesPerRow()) {
+			loadSubsampled(newRes);
+		}
 		res = newRes;
 		asciiAlgoDirty = true;
 		System.out.println(RESOLUTION_SET_TO + res + DOT);
 	}
 
+	/**
+	 * Parses a numeric resolution parameter.
+	 *
+	 * @param param the resolution as typed by the user
+	 * @return the resolution
+	 * @throws IOException if the parameter is not a number
+	 */
+	private static int parseRes(String param) throws IOException {
+		try {
+			return Integer.parseInt(param);
+		} catch (NumberFormatException e) {
+			throw new IOException(INCORRECT_RES_FORMAT_MSG);
+		}
+	}
+
 	/**
 	 * Sets the rounding mode used when mapping brightness to characters.
 	 *
@@ -354,10 +669,43 @@ public class Shell {
 
 	}
 
+	/**
+	 * Sets the number of worker threads used to compute tile brightness ("threads 8").
+	 * A single thread runs the sequential path; more threads run on a fork/join pool.
+	 *
+	 * @param action the full command input
+	 * @throws IOException if the format is invalid
+	 */
+	private void threadsCmd(String action) throws IOException {
+		String[] parts = action.split(SPLIT_STRING);
+		if (parts.length < 2) {
+			System.out.println(THREADS_SET_TO + threads + DOT);
+			return;
+		}
+		int newThreads;
+		try {
+			newThreads = Integer.parseInt(parts[1]);
+		} catch (NumberFormatException e) {
+			throw new IOException(INCORRECT_THREADS_MSG);
+		}
+		if (newThreads < MIN_NUM_ONE) {
+			throw new IOException(INCORRECT_THREADS_MSG);
+		}
+		if (pool != null) {
+			pool.shutdown();
+		}
+		threads = newThreads;
+		pool = threads > MIN_NUM_ONE ? new ForkJoinPool(threads) : null;
+		asciiAlgoDirty = true;
+		System.out.println(THREADS_SET_TO + threads + DOT);
+	}
+
 	/**
 	 * Sets the output method (console or HTML) for ASCII rendering.
 	 *
-	 * @param action the full command input (e.g., "output html")
+	 * @param action the full command input (e.g., "output html", or "output html gzip"
+	 *               to write a gzip-compressed file, or "output console compact" to print
+	 *               without spaces between chars)
 	 * @throws IOException if the input format is invalid
 	 */
 	private void outputCmd(String action) throws IOException {
@@ -367,8 +715,20 @@ public class Shell {
 		}
 		String param = parts[1];
 		switch (param) {
-			case HTML_MSG -> this.output = OUTPUT_OPTIONS[INDEX_FIRST_CHAR];
-			case CONSOLE_MSG -> this.output = OUTPUT_OPTIONS[1];
+			case HTML_MSG -> {
+				if (parts.length > OUTPUT_OPTION_INDEX && !parts[OUTPUT_OPTION_INDEX].equals(GZIP_MSG)) {
+					throw new IOException(INCORRECT_OUTPUT_MSG);
+				}
+				this.output = OUTPUT_OPTIONS[INDEX_FIRST_CHAR];
+				this.compressHtml = parts.length > OUTPUT_OPTION_INDEX;
+			}
+			case CONSOLE_MSG -> {
+				if (parts.length > OUTPUT_OPTION_INDEX && !parts[OUTPUT_OPTION_INDEX].equals(COMPACT_MSG)) {
+					throw new IOException(INCORRECT_OUTPUT_MSG);
+				}
+				this.output = OUTPUT_OPTIONS[1];
+				this.compactConsole = parts.length > OUTPUT_OPTION_INDEX;
+			}
 			default -> throw new IOException(INCORRECT_OUTPUT_MSG);
 		}
 	}
@@ -376,31 +736,53 @@ public class Shell {
 	/**
 	 * Executes the ASCII art generation pipeline.
 	 *
+	 * @param render whether to actually render; when false only the checks are made, for
+	 *               a result that is known to be overwritten
 	 * @throws IOException if the character set is too small or setup is incomplete
 	 */
-	private void asciiCmd() throws IOException {
+	private void asciiCmd(boolean render) throws IOException {
 		if (charset.size() < PARTS_LENGTH) {
 			throw (new IOException(INCORRECT_ASCII_MSG));
 		}
-		char[] arrChar = toCharArray(charset);
-		if (matcherDirty) {
-			this.matcher = new SubImgCharMatcher(arrChar);
-			matcher.setRoundingMode(this.roundingMode);
-			matcherDirty = false;
-			asciiAlgoDirty = true;
+		if (!render) {
+			return;
 		}
 		if (asciiAlgoDirty) {
-			this.asciiAlgo = new AsciiArtAlgorithm(this.image, res, matcher);
+			TileBrightnessSource tiles = unpadded ? unpaddedGrid : pyramid;
+			this.asciiAlgo = new AsciiArtAlgorithm(tiles, res, matcher, pool);
 			asciiAlgoDirty = false;
 		}
-		char[][] asciiPhoto = asciiAlgo.run();
 		if (Objects.equals(output, HTML_MSG)) {
-			HtmlAsciiOutput htmlAsciiOutput = new HtmlAsciiOutput(OUTPUT_HTML_FILENAME,
-					FONT_NAME);
-			htmlAsciiOutput.out(asciiPhoto);
+			asciiAlgo.run(new HtmlAsciiOutput(OUTPUT_HTML_FILENAME, FONT_NAME, compressHtml));
 		} else {
-			ConsoleAsciiOutput consoleAsciiOutput = new ConsoleAsciiOutput();
-			consoleAsciiOutput.out(asciiPhoto);
+			asciiAlgo.run(new ConsoleAsciiOutput(!compactConsole));
+		}
+		PipelineMetrics.endRun();
+	}
+
+	/**
+	 * Turns pipeline metrics on or off, or prints the breakdown of the last "asciiArt" run
+	 * and the running percentiles of every stage.
+	 *
+	 * @param action the full command input ("stats", "stats on" or "stats off")
+	 * @throws IOException if the input format is invalid
+	 */
+	private void statsCmd(String action) throws IOException {
+		String[] parts = action.split(SPLIT_STRING);
+		if (parts.length > PARTS_LENGTH) {
+			throw new IOException(INCORRECT_STATS_MSG);
+		}
+		if (parts.length == PARTS_LENGTH) {
+			switch (parts[1]) {
+				case ON_MSG -> PipelineMetrics.setEnabled(true);
+				case OFF_MSG -> PipelineMetrics.setEnabled(false);
+				default -> throw new IOException(INCORRECT_STATS_MSG);
+			}
+			System.out.println(STATS_SET_TO + parts[1] + DOT);
+		} else if (PipelineMetrics.isEnabled()) {
+			PipelineMetrics.print();
+		} else {
+			System.out.println(STATS_OFF_MSG);
 		}
 	}
 
@@ -419,17 +801,68 @@ public class Shell {
 		return a;
 	}
 
+	/**
+	 * Loads the glyph brightness cache file named by the {@code glyphCache} system property,
+	 * if the property is set and the file exists. A file that cannot be read only prints a
+	 * warning: glyphs are then rendered as needed, and the next save rewrites the file.
+	 */
+	static void loadGlyphCache() {
+		String glyphCacheFile = System.getProperty(GLYPH_CACHE_PROPERTY);
+		if (glyphCacheFile != null && new File(glyphCacheFile).isFile()) {
+			try {
+				GlyphBrightnessCache.load(glyphCacheFile);
+			} catch (IOException e) {
+				System.err.println(GLYPH_CACHE_WARNING_MSG + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Saves the glyph brightness cache to the file named by the {@code glyphCache} system
+	 * property, if it is set. Every printable character is cached first, so the next start
+	 * never has to render a glyph.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	static void saveGlyphCache() throws IOException {
+		String glyphCacheFile = System.getProperty(GLYPH_CACHE_PROPERTY);
+		if (glyphCacheFile != null) {
+			for (char i = FIRST_ASCII_INDEX; i < AFTER_LAST_ASCII_INDEX; i++) {
+				GlyphBrightnessCache.getBrightness(i);
+			}
+			GlyphBrightnessCache.save(glyphCacheFile);
+		}
+	}
+
 	/**
 	 * Entry point for the ASCII art she'll program.
-	 * Expects the image file path as the first command-line argument.
+	 * Expects the image file path as the first command-line argument, optionally followed
+	 * by {@code --script <file>} or {@code --script -} to run a command list instead.
+	 * Run with {@code -DglyphCache=<file>} to reuse glyph brightness values between runs,
+	 * and with {@code -Dstats=true} to collect pipeline metrics from the start.
 	 *
 	 * @param args command-line arguments
 	 * @throws IOException if image loading or shell execution fails
 	 */
 	public static void main(String[] args) throws IOException {
+		loadGlyphCache();
 		Shell shell = new Shell();
 		String imageName = args[INDEX_FIRST_CHAR];
-		shell.run(imageName);
+		try {
+			if (args.length > SCRIPT_FILE_INDEX && args[SCRIPT_OPTION_INDEX].equals(SCRIPT_OPTION)) {
+				String scriptFile = args[SCRIPT_FILE_INDEX];
+				List<String> commands = scriptFile.equals(STDIN_SCRIPT) ?
+						new BufferedReader(new InputStreamReader(System.in)).lines().toList() :
+						Files.readAllLines(Paths.get(scriptFile));
+				shell.runScript(imageName, commands);
+			} else {
+				shell.run(imageName);
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(STARTUP_FAILURE_STATUS);
+		}
+		saveGlyphCache();
 		System.exit(0);
 
 
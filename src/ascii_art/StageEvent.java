@@ -0,0 +1,27 @@
+package ascii_art;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering one stage of the ASCII-art pipeline. The event's
+ * own duration is the stage's wall time; it is only committed while a recording enables it.
+ *
+ * @author Eyal and Dana
+ */
+@Name("ascii_art.Stage")
+@Label("ASCII Art Stage")
+@Category("ASCII Art")
+@Description("One stage of converting an image to ASCII art")
+class StageEvent extends Event {
+	@Label("Stage")
+	String stage;
+
+	@Label("Allocated")
+	@DataAmount
+	long allocatedBytes;
+}
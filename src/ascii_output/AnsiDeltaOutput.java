@@ -0,0 +1,256 @@
+package ascii_output;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Output ASCII-art frames to an ANSI terminal, redrawing only the cells that changed.
+ * <p>
+ * The previous frame is kept, and each new frame is sent as runs of changed chars, each
+ * preceded by an ANSI cursor-position sequence. An unchanged gap between two changed chars
+ * is sent as text whenever it is no longer than the cursor sequence that would skip it,
+ * which is 6 bytes near the top-left corner and grows with the row and column numbers.
+ * Every gap ends with the cursor at the same cell either way, so deciding each gap on its
+ * own sends the fewest bytes for the single-byte chars of the charset.
+ * The first frame, and any frame of different dimensions, clears the screen and is drawn
+ * in full. Chars are drawn without separators, one terminal cell each.
+ * </p>
+ * <p>
+ * Frames are throttled to a maximal frame rate by waiting in {@link #beginFrame}, and the
+ * number of bytes each frame took is recorded, so callers can report the bandwidth used.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class AnsiDeltaOutput implements AsciiOutput, AsciiRowSink {
+	private static final String ESCAPE = "\u001b[";
+	private static final String CLEAR_SCREEN = ESCAPE + "2J";
+	private static final String HIDE_CURSOR = ESCAPE + "?25l";
+	private static final String SHOW_CURSOR = ESCAPE + "?25h";
+	private static final char POSITION_SEPARATOR = ';';
+	private static final char POSITION_END = 'H';
+	private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+	private static final int DECIMAL_BASE = 10;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private final CountingChannel channel;
+	private final ChannelCharWriter writer;
+	private final long frameIntervalNanos;
+	private char[][] previous = new char[0][];
+	private boolean fullRedraw;
+	private int rowIndex;
+	private int rows;
+	private long lastFrameStart;
+	private long frameStartBytes;
+	private long lastFrameBytes;
+	private long frames;
+
+	/**
+	 * Constructs an ANSI output to the standard output.
+	 *
+	 * @param maxFramesPerSecond the maximal frame rate, or 0 for no limit
+	 */
+	public AnsiDeltaOutput(int maxFramesPerSecond) {
+		this(new FileOutputStream(FileDescriptor.out).getChannel(), maxFramesPerSecond);
+	}
+
+	/**
+	 * Constructs an ANSI output to the given channel, such as a socket or a pipe.
+	 *
+	 * @param channel            the channel to write to; it is not closed by this output
+	 * @param maxFramesPerSecond the maximal frame rate, or 0 for no limit
+	 */
+	public AnsiDeltaOutput(WritableByteChannel channel, int maxFramesPerSecond) {
+		this.channel = new CountingChannel(channel);
+		this.writer = new ChannelCharWriter(this.channel, Charset.defaultCharset());
+		this.frameIntervalNanos = maxFramesPerSecond > 0 ? NANOS_PER_SECOND / maxFramesPerSecond : 0;
+	}
+
+	/**
+	 * Returns the number of bytes the last frame took.
+	 *
+	 * @return the bytes written for the last frame
+	 */
+	public long getLastFrameBytes() {
+		return lastFrameBytes;
+	}
+
+	/**
+	 * Returns the number of bytes written so far.
+	 *
+	 * @return the total bytes written
+	 */
+	public long getTotalBytes() {
+		return channel.count;
+	}
+
+	/**
+	 * Returns the number of frames written so far.
+	 *
+	 * @return the number of frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	@Override
+	public void out(char[][] chars) {
+		frame(chars);
+	}
+
+	@Override
+	public void beginFrame(int rows, int cols) {
+		throttle();
+		// Anything already printed through System.out must reach the terminal first
+		System.out.flush();
+		frameStartBytes = channel.count;
+		this.rows = rows;
+		rowIndex = 0;
+		fullRedraw = previous.length != rows || (rows > 0 && previous[0].length != cols);
+		try {
+			if (fullRedraw) {
+				previous = new char[rows][cols];
+				writer.write(HIDE_CURSOR);
+				writer.write(CLEAR_SCREEN);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void row(char[] row) {
+		char[] old = previous[rowIndex];
+		try {
+			int col = 0;
+			while (col < row.length) {
+				if (!fullRedraw && row[col] == old[col]) {
+					col++;
+					continue;
+				}
+				// Extend the run over changed chars and gaps cheaper to send than to skip
+				int start = col;
+				int end = col + 1;
+				while (end < row.length) {
+					int next = end;
+					while (next < row.length && !fullRedraw && row[next] == old[next]) {
+						next++;
+					}
+					if (next == row.length || next - end > cursorMoveLength(rowIndex, next)) {
+						break;
+					}
+					end = next + 1;
+				}
+				moveCursor(rowIndex, start);
+				writer.write(row, start, end - start);
+				col = end;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		System.arraycopy(row, 0, old, 0, row.length);
+		rowIndex++;
+	}
+
+	@Override
+	public void endFrame() {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		lastFrameBytes = channel.count - frameStartBytes;
+		frames++;
+	}
+
+	@Override
+	public void endStream() {
+		try {
+			moveCursor(rows, 0);
+			writer.write(SHOW_CURSOR);
+			writer.write(LINE_SEPARATOR);
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		previous = new char[0][];
+	}
+
+	/**
+	 * Waits until the minimal interval since the previous frame has passed.
+	 */
+	private void throttle() {
+		long now = System.nanoTime();
+		long wait = lastFrameStart + frameIntervalNanos - now;
+		if (frames > 0 && wait > 0) {
+			try {
+				Thread.sleep(wait / NANOS_PER_MILLI, (int) (wait % NANOS_PER_MILLI));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			now = System.nanoTime();
+		}
+		lastFrameStart = now;
+	}
+
+	/**
+	 * Writes the ANSI sequence moving the cursor to a zero-based row and column.
+	 */
+	private void moveCursor(int row, int col) throws IOException {
+		writer.write(ESCAPE);
+		writer.write(Integer.toString(row + 1));
+		writer.write(POSITION_SEPARATOR);
+		writer.write(Integer.toString(col + 1));
+		writer.write(POSITION_END);
+	}
+
+	/**
+	 * Returns the length of the sequence {@link #moveCursor} writes for a position.
+	 */
+	private static int cursorMoveLength(int row, int col) {
+		return ESCAPE.length() + decimalDigits(row + 1) + 1 + decimalDigits(col + 1) + 1;
+	}
+
+	private static int decimalDigits(int value) {
+		int digits = 1;
+		for (int rest = value / DECIMAL_BASE; rest > 0; rest /= DECIMAL_BASE) {
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * A channel wrapper counting the bytes written through it.
+	 */
+	private static class CountingChannel implements WritableByteChannel {
+		private final WritableByteChannel channel;
+		private long count = 0;
+
+		CountingChannel(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			int written = channel.write(src);
+			count += written;
+			return written;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package ascii_output;
+
+/**
+ * An object implementing this interface can receive an ASCII-art frame one row at a time,
+ * so a frame never has to be materialized as a whole 2D array.
+ * <p>
+ * A frame is delivered as one call to {@link #beginFrame}, exactly {@code rows} calls
+ * to {@link #row}, and one call to {@link #endFrame}. A sink receiving a stream of frames,
+ * such as an animation, is told when the stream ends through {@link #endStream}.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public interface AsciiRowSink {
+	/**
+	 * Starts a new frame of the given dimensions.
+	 *
+	 * @param rows the number of rows that will follow
+	 * @param cols the number of chars in every row
+	 */
+	void beginFrame(int rows, int cols);
+
+	/**
+	 * Receives the next row of the frame. The array may be reused by the caller
+	 * once this method returns, so it must not be retained.
+	 *
+	 * @param row the chars of the row
+	 */
+	void row(char[] row);
+
+	/**
+	 * Finishes the current frame.
+	 */
+	void endFrame();
+
+	/**
+	 * Finishes a stream of frames, after the last frame has ended. Sinks that only ever hold
+	 * a single frame have nothing to do.
+	 */
+	default void endStream() {
+	}
+
+	/**
+	 * Streams a whole materialized frame through this sink.
+	 *
+	 * @param chars the frame, as [rows][cols]
+	 */
+	default void frame(char[][] chars) {
+		beginFrame(chars.length, chars.length == 0 ? 0 : chars[0].length);
+		for (char[] row : chars) {
+			row(row);
+		}
+		endFrame();
+	}
+}
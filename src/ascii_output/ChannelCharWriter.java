@@ -0,0 +1,121 @@
+package ascii_output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * A package-private character writer over a byte channel, with no per-row allocation.
+ * <p>
+ * Characters are collected in a {@code char[]}, encoded into a byte buffer and written to
+ * the channel in large blocks, so writing a frame costs a few bulk writes rather than one
+ * call per character. The 64K-char buffer, 64K-byte buffer and encoder are allocated once per
+ * writer; outputs that write many frames keep one writer, since {@link #flush()} leaves it
+ * ready for reuse. The channel is not closed by the writer.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+class ChannelCharWriter {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final char[] chars = new char[BUFFER_SIZE];
+	private final CharBuffer charBuffer = CharBuffer.wrap(chars);
+	private final ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private int length = 0;
+
+	/**
+	 * Constructs a writer that encodes characters to the given channel.
+	 *
+	 * @param channel the channel to write to
+	 * @param charset the charset to encode characters with
+	 */
+	ChannelCharWriter(WritableByteChannel channel, Charset charset) {
+		this.channel = channel;
+		this.encoder = charset.newEncoder();
+	}
+
+	void write(char c) throws IOException {
+		if (length == chars.length) {
+			encodeChars(false);
+		}
+		chars[length++] = c;
+	}
+
+	void write(char[] source) throws IOException {
+		write(source, 0, source.length);
+	}
+
+	void write(char[] source, int from, int count) throws IOException {
+		for (int offset = from; offset < from + count; ) {
+			if (length == chars.length) {
+				encodeChars(false);
+			}
+			int chunk = Math.min(from + count - offset, chars.length - length);
+			System.arraycopy(source, offset, chars, length, chunk);
+			length += chunk;
+			offset += chunk;
+		}
+	}
+
+	void write(String s) throws IOException {
+		for (int offset = 0; offset < s.length(); ) {
+			if (length == chars.length) {
+				encodeChars(false);
+			}
+			int count = Math.min(s.length() - offset, chars.length - length);
+			s.getChars(offset, offset + count, chars, length);
+			length += count;
+			offset += count;
+		}
+	}
+
+	/**
+	 * Encodes and writes everything buffered so far, and resets the encoder for reuse.
+	 *
+	 * @throws IOException if writing to the channel fails
+	 */
+	void flush() throws IOException {
+		encodeChars(true);
+		while (encoder.flush(byteBuffer).isOverflow()) {
+			drain();
+		}
+		drain();
+		encoder.reset();
+	}
+
+	/**
+	 * Encodes the buffered chars, draining the byte buffer whenever it fills up.
+	 */
+	private void encodeChars(boolean endOfInput) throws IOException {
+		charBuffer.limit(length).position(0);
+		while (true) {
+			CoderResult result = encoder.encode(charBuffer, byteBuffer, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			}
+		}
+		// Keep a dangling high surrogate for the next round
+		int remaining = charBuffer.remaining();
+		System.arraycopy(chars, charBuffer.position(), chars, 0, remaining);
+		length = remaining;
+	}
+
+	private void drain() throws IOException {
+		byteBuffer.flip();
+		while (byteBuffer.hasRemaining()) {
+			channel.write(byteBuffer);
+		}
+		byteBuffer.clear();
+	}
+}
@@ -1,18 +1,82 @@
 package ascii_output;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
 /**
  * Output a 2D array of chars to the console.
+ * <p>
+ * The frame is collected in a preallocated buffer and written to the standard output
+ * file descriptor in a few bulk writes, bypassing the synchronized {@code System.out}.
+ * As an {@link AsciiRowSink}, rows are buffered as they arrive and flushed at the frame end,
+ * and the buffers are reused for every later frame.
+ * </p>
  *
  * @author Dan Nirel
  */
-public class ConsoleAsciiOutput implements AsciiOutput {
+public class ConsoleAsciiOutput implements AsciiOutput, AsciiRowSink {
+	private static final char SEPARATOR = ' ';
+	private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+	private static final FileChannel STDOUT =
+			new FileOutputStream(FileDescriptor.out).getChannel();
+
+	private final boolean separateChars;
+	private ChannelCharWriter writer;
+
+	public ConsoleAsciiOutput() {
+		this(true);
+	}
+
+	/**
+	 * Constructs a console output.
+	 *
+	 * @param separateChars whether to print a space after every char, as the default output does
+	 */
+	public ConsoleAsciiOutput(boolean separateChars) {
+		this.separateChars = separateChars;
+	}
+
 	@Override
 	public void out(char[][] chars) {
-		for (int y = 0; y < chars.length; y++) {
-			for (int x = 0; x < chars[y].length; x++) {
-				System.out.print(chars[y][x] + " ");
+		frame(chars);
+	}
+
+	@Override
+	public void beginFrame(int rows, int cols) {
+		// Anything already printed through System.out must reach the console first
+		System.out.flush();
+		if (writer == null) {
+			writer = new ChannelCharWriter(STDOUT, Charset.defaultCharset());
+		}
+	}
+
+	@Override
+	public void row(char[] row) {
+		try {
+			if (separateChars) {
+				for (char c : row) {
+					writer.write(c);
+					writer.write(SEPARATOR);
+				}
+			} else {
+				writer.write(row);
 			}
-			System.out.println();
+			writer.write(LINE_SEPARATOR);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void endFrame() {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 }
@@ -0,0 +1,155 @@
+package ascii_output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * Output a stream of ASCII-art frames to a single HTML file that plays them as an animation
+ * in a web browser.
+ * <p>
+ * The file is opened at the first frame and every frame is appended as it arrives, so frames
+ * are never collected in memory. Each frame is a hidden paragraph styled like
+ * {@link HtmlAsciiOutput}'s; a small script written at {@link #endStream} shows them in turn,
+ * looping at a fixed frame rate.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class HtmlAnimationOutput implements AsciiRowSink {
+	private static final double BASE_LINE_SPACING = 0.8;
+	private static final double BASE_FONT_SIZE = 150.0;
+	private static final int MILLIS_PER_SECOND = 1000;
+
+	private final String filename;
+	private final String fontName;
+	private final int frameDelay;
+	private FileChannel channel;
+	private ChannelCharWriter writer;
+	private boolean failed = false;
+
+	/**
+	 * Constructs an HTML animation output.
+	 *
+	 * @param filename        the file to write
+	 * @param fontName        the font to render the chars in
+	 * @param framesPerSecond the playback frame rate
+	 */
+	public HtmlAnimationOutput(String filename, String fontName, int framesPerSecond) {
+		this.filename = filename;
+		this.fontName = fontName;
+		this.frameDelay = MILLIS_PER_SECOND / framesPerSecond;
+	}
+
+	@Override
+	public void beginFrame(int rows, int cols) {
+		if (failed) {
+			return;
+		}
+		try {
+			if (writer == null) {
+				channel = FileChannel.open(Paths.get(filename),
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING);
+				writer = new ChannelCharWriter(channel, StandardCharsets.UTF_8);
+				writer.write(String.format(
+						"<!DOCTYPE html>\n" +
+								"<html>\n" +
+								"<head>\n" +
+								"<style>\n" +
+								"p.frame {" +
+								"\tdisplay:none;" +
+								"\twhite-space:pre;" +
+								"\tFONT-FAMILY:%s;" +
+								"\tFONT-SIZE:%frem;" +
+								"\tLETTER-SPACING:0.15em;" +
+								"\tLINE-HEIGHT:%fem;}\n" +
+								"</style>\n" +
+								"</head>\n" +
+								"<body style=\"" +
+								"\tCOLOR:#000000;" +
+								"\tTEXT-ALIGN:center;" +
+								"\tFONT-SIZE:1px;\">\n",
+						fontName, BASE_FONT_SIZE / cols, BASE_LINE_SPACING));
+			}
+			writer.write("<p class=\"frame\">\n");
+		} catch (IOException e) {
+			fail();
+		}
+	}
+
+	@Override
+	public void row(char[] row) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			HtmlAsciiOutput.writeEscapedRow(writer, row);
+		} catch (IOException e) {
+			fail();
+		}
+	}
+
+	@Override
+	public void endFrame() {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.write("</p>\n");
+		} catch (IOException e) {
+			fail();
+		}
+	}
+
+	@Override
+	public void endStream() {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.write(String.format(
+					"<script>\n" +
+							"var frames = document.getElementsByClassName(\"frame\");\n" +
+							"var current = 0;\n" +
+							"frames[0].style.display = \"block\";\n" +
+							"setInterval(function () {\n" +
+							"\tframes[current].style.display = \"none\";\n" +
+							"\tcurrent = (current + 1) %% frames.length;\n" +
+							"\tframes[current].style.display = \"block\";\n" +
+							"}, %d);\n" +
+							"</script>\n" +
+							"</body>\n" +
+							"</html>\n",
+					frameDelay));
+			writer.flush();
+			closeChannel();
+		} catch (IOException e) {
+			fail();
+		}
+	}
+
+	/**
+	 * Logs a write failure and abandons the animation.
+	 */
+	private void fail() {
+		Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+		failed = true;
+		try {
+			closeChannel();
+		} catch (IOException ignored) {
+			// The failure has already been reported
+		}
+	}
+
+	private void closeChannel() throws IOException {
+		writer = null;
+		if (channel != null) {
+			channel.close();
+		}
+		channel = null;
+	}
+}
@@ -1,30 +1,107 @@
 package ascii_output;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Output a 2D array of chars to an HTML file viewable in a web browser.
+ * <p>
+ * Each char is escaped through a precomputed table into a reusable buffer, which is
+ * encoded and written through a {@link FileChannel} in large blocks, so no object is
+ * allocated per character. The file may optionally be gzip-compressed.
+ * </p>
+ * <p>
+ * As an {@link AsciiRowSink} it writes each row as it arrives, keeping the file open
+ * between {@link #beginFrame} and {@link #endFrame}. It can also write to a caller's
+ * channel, such as an HTTP response body, which it then leaves open.
+ * </p>
  *
  * @author Dan Nirel
  */
-public class HtmlAsciiOutput implements AsciiOutput {
+public class HtmlAsciiOutput implements AsciiOutput, AsciiRowSink {
 	private static final double BASE_LINE_SPACING = 0.8;
 	private static final double BASE_FONT_SIZE = 150.0;
+	private static final int GZIP_BUFFER_SIZE = 1 << 16;
+	private static final int ESCAPE_TABLE_SIZE = 128;
+	private static final String GZIP_SUFFIX = ".gz";
+	private static final char[][] ESCAPES = new char[ESCAPE_TABLE_SIZE][];
+	private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+
+	static {
+		ESCAPES['<'] = "&lt;".toCharArray();
+		ESCAPES['>'] = "&gt;".toCharArray();
+		ESCAPES['&'] = "&amp;".toCharArray();
+	}
 
 	private final String fontName;
 	private final String filename;
+	private final boolean compress;
+	private final WritableByteChannel target;
+	private FileChannel fileChannel;
+	private WritableByteChannel channel;
+	private ChannelCharWriter writer;
+	private IOException failure;
 
 	public HtmlAsciiOutput(String filename, String fontName) {
+		this(filename, fontName, false);
+	}
+
+	/**
+	 * Constructs an HTML output that optionally gzip-compresses the file.
+	 *
+	 * @param filename the file to write; {@code .gz} is appended when compressing
+	 * @param fontName the font to render the chars in
+	 * @param compress whether to gzip-compress the output
+	 */
+	public HtmlAsciiOutput(String filename, String fontName, boolean compress) {
+		this.fontName = fontName;
+		this.filename = compress ? filename + GZIP_SUFFIX : filename;
+		this.compress = compress;
+		this.target = null;
+	}
+
+	/**
+	 * Constructs an HTML output that writes every frame to the given channel and leaves it
+	 * open.
+	 *
+	 * @param target   the channel to write to
+	 * @param fontName the font to render the chars in
+	 */
+	public HtmlAsciiOutput(WritableByteChannel target, String fontName) {
 		this.fontName = fontName;
-		this.filename = filename;
+		this.filename = target.toString();
+		this.compress = false;
+		this.target = target;
 	}
 
 	@Override
 	public void out(char[][] chars) {
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+		frame(chars);
+	}
+
+	@Override
+	public void beginFrame(int rows, int cols) {
+		failure = null;
+		try {
+			if (target != null) {
+				channel = null;
+			} else {
+				fileChannel = FileChannel.open(Paths.get(filename),
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING);
+				channel = compress ?
+						Channels.newChannel(new GZIPOutputStream(
+								Channels.newOutputStream(fileChannel), GZIP_BUFFER_SIZE)) :
+						fileChannel;
+			}
+			writer = new ChannelCharWriter(target != null ? target : channel, StandardCharsets.UTF_8);
 			writer.write(String.format(
 					"<!DOCTYPE html>\n" +
 							"<html>\n" +
@@ -38,34 +115,96 @@ public class HtmlAsciiOutput implements AsciiOutput {
 							"\tFONT-SIZE:%frem;" +
 							"\tLETTER-SPACING:0.15em;" +
 							"\tLINE-HEIGHT:%fem;\">\n",
-					fontName, BASE_FONT_SIZE / chars[0].length, BASE_LINE_SPACING));
+					fontName, BASE_FONT_SIZE / cols, BASE_LINE_SPACING));
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
 
-			for (int y = 0; y < chars.length; y++) {
-				for (int x = 0; x < chars[y].length; x++) {
-					String htmlRep;
-					switch (chars[y][x]) {
-						case '<':
-							htmlRep = "&lt;";
-							break;
-						case '>':
-							htmlRep = "&gt;";
-							break;
-						case '&':
-							htmlRep = "&amp;";
-							break;
-						default:
-							htmlRep = String.valueOf(chars[y][x]);
-					}
-					writer.write(htmlRep);
-				}
-				writer.newLine();
-			}
+	@Override
+	public void row(char[] row) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writeEscapedRow(writer, row);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	@Override
+	public void endFrame() {
+		if (writer == null) {
+			return;
+		}
+		try {
 			writer.write(
 					"</p>\n" +
 							"</body>\n" +
 							"</html>\n");
+			writer.flush();
+			closeChannels();
 		} catch (IOException e) {
-			Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+			fail(e);
+		}
+	}
+
+	/**
+	 * Writes a row of chars escaped for HTML, followed by a line separator.
+	 *
+	 * @param writer the writer to write to
+	 * @param row    the chars of the row
+	 * @throws IOException if writing fails
+	 */
+	static void writeEscapedRow(ChannelCharWriter writer, char[] row) throws IOException {
+		for (char c : row) {
+			char[] escape = c < ESCAPE_TABLE_SIZE ? ESCAPES[c] : null;
+			if (escape == null) {
+				writer.write(c);
+			} else {
+				writer.write(escape);
+			}
+		}
+		writer.write(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Returns the error that made the last frame fail to write, if any. Failures are only
+	 * logged as they happen, so callers that must know whether the file was written check here
+	 * after the frame ends.
+	 *
+	 * @return the write error of the last frame, or {@code null} if it was written
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Logs a write failure, keeps it for {@link #getFailure()} and abandons the current frame.
+	 */
+	private void fail(IOException e) {
+		failure = e;
+		Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+		try {
+			closeChannels();
+		} catch (IOException ignored) {
+			// The failure has already been reported
+		}
+	}
+
+	private void closeChannels() throws IOException {
+		writer = null;
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} finally {
+			channel = null;
+			if (fileChannel != null) {
+				fileChannel.close();
+			}
+			fileChannel = null;
 		}
 	}
 }
@@ -0,0 +1,55 @@
+package ascii_output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output a 2D array of chars as plain UTF-8 text lines to a channel, such as a socket or an
+ * HTTP response body. The channel is left open.
+ *
+ * @author Eyal and Dana
+ */
+public class TextAsciiOutput implements AsciiOutput, AsciiRowSink {
+	private static final char LINE_SEPARATOR = '\n';
+
+	private final ChannelCharWriter writer;
+
+	/**
+	 * Constructs a text output to the given channel.
+	 *
+	 * @param channel the channel to write to
+	 */
+	public TextAsciiOutput(WritableByteChannel channel) {
+		this.writer = new ChannelCharWriter(channel, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void out(char[][] chars) {
+		frame(chars);
+	}
+
+	@Override
+	public void beginFrame(int rows, int cols) {
+	}
+
+	@Override
+	public void row(char[] row) {
+		try {
+			writer.write(row);
+			writer.write(LINE_SEPARATOR);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void endFrame() {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package image;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A mip-style pyramid of tile brightness levels over a power-of-two padded image.
+ * <p>
+ * Each level holds the brightness of every square tile for one resolution (tiles per row).
+ * Since resolutions move by a factor of two, every tile of a coarser level covers exactly
+ * 2x2 tiles of the next finer level. A missing level is therefore reduced from a cached
+ * finer level when one exists, and otherwise computed once from the {@link IntegralImage};
+ * either way it is kept for later requests.
+ * </p>
+ *
+ * <p>
+ * Levels store exact integer luminance sums, so a reduced level is bit-for-bit identical
+ * to one computed directly from the integral image.
+ * </p>
+ *
+ * <p>
+ * A pyramid can also be seeded with a precomputed finest level and no integral image,
+ * as done by {@link StripImageLoader}; it then serves that resolution and every coarser one.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class BrightnessPyramid implements TileBrightnessSource {
+	private static final int REDUCTION_FACTOR = 2;
+
+	private static final String RESOLUTION_TOO_HIGH_MSG = "Resolution exceeds the finest level: ";
+
+	private final IntegralImage integralImage;
+	private final int width;
+	private final int height;
+	private final int maxTilesPerRow;
+	private final Map<Integer, Level> levels = new HashMap<>();
+
+	/**
+	 * Constructs an empty pyramid over the given integral image.
+	 *
+	 * @param integralImage the integral image of the already padded image
+	 */
+	public BrightnessPyramid(IntegralImage integralImage) {
+		this.integralImage = integralImage;
+		this.width = integralImage.getWidth();
+		this.height = integralImage.getHeight();
+		this.maxTilesPerRow = width;
+	}
+
+	/**
+	 * Constructs a pyramid seeded with its finest level, without an integral image.
+	 *
+	 * @param width          the width of the padded image
+	 * @param height         the height of the padded image
+	 * @param maxTilesPerRow the resolution of the finest level
+	 * @param sums           the row-major scaled luminance sums of the finest level's tiles
+	 */
+	BrightnessPyramid(int width, int height, int maxTilesPerRow, long[] sums) {
+		this.integralImage = null;
+		this.width = width;
+		this.height = height;
+		this.maxTilesPerRow = maxTilesPerRow;
+		levels.put(maxTilesPerRow, new Level(sums, width / maxTilesPerRow));
+	}
+
+	/**
+	 * Returns the finest resolution this pyramid can serve.
+	 *
+	 * @return the maximal number of tiles per row
+	 */
+	public int getMaxTilesPerRow() {
+		return maxTilesPerRow;
+	}
+
+	/**
+	 * Returns the integral image this pyramid is built over.
+	 *
+	 * @return the integral image, or {@code null} if the pyramid was seeded with a finest level
+	 */
+	public IntegralImage getIntegralImage() {
+		return integralImage;
+	}
+
+	/**
+	 * Returns the number of tile rows at the given resolution.
+	 *
+	 * @param tilesPerRow the resolution (number of tiles per row)
+	 * @return the number of tile rows
+	 */
+	@Override
+	public int getRows(int tilesPerRow) {
+		return height / (width / tilesPerRow);
+	}
+
+	/**
+	 * Returns the row-major brightness of every tile at the given resolution,
+	 * computing and caching the level if needed. The returned array must not be modified.
+	 *
+	 * @param tilesPerRow the resolution (number of tiles per row)
+	 * @return the tile brightness values, of length {@code getRows(tilesPerRow) * tilesPerRow}
+	 */
+	@Override
+	public synchronized double[] getTileBrightness(int tilesPerRow) {
+		return getLevel(tilesPerRow).brightness;
+	}
+
+	/**
+	 * Writes the brightness of a range of tile rows without caching the level. The rows are
+	 * copied from the level if it is cached, summed from the nearest cached finer level if there
+	 * is one, and read from the integral image otherwise. The values are identical to those of
+	 * {@link #getTileBrightness(int)}, since every path adds the same exact luminance sums.
+	 *
+	 * @param tilesPerRow the resolution (number of tiles per row)
+	 * @param fromRow     the first tile row, inclusive
+	 * @param toRow       the last tile row, exclusive
+	 * @param dest        the buffer to fill, of length at least {@code (toRow - fromRow) * tilesPerRow}
+	 */
+	@Override
+	public void getTileBrightness(int tilesPerRow, int fromRow, int toRow, double[] dest) {
+		if (tilesPerRow > maxTilesPerRow) {
+			throw new IllegalArgumentException(RESOLUTION_TOO_HIGH_MSG + tilesPerRow);
+		}
+		int squareSize = width / tilesPerRow;
+		Level finer = nearestCachedLevel(tilesPerRow);
+		if (finer != null && finer.squareSize == squareSize) {
+			System.arraycopy(finer.brightness, fromRow * tilesPerRow, dest, 0,
+					(toRow - fromRow) * tilesPerRow);
+			return;
+		}
+		long pixelCount = (long) squareSize * squareSize;
+		for (int i = fromRow; i < toRow; i++) {
+			for (int j = 0; j < tilesPerRow; j++) {
+				long sum = finer == null ?
+						integralImage.rectangleSum(i * squareSize, j * squareSize, squareSize, squareSize) :
+						blockSum(finer, squareSize / finer.squareSize, tilesPerRow, i, j);
+				dest[(i - fromRow) * tilesPerRow + j] = IntegralImage.toBrightness(sum, pixelCount);
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached level of the given resolution or, failing that, of the closest
+	 * finer one, or {@code null} if neither is cached.
+	 */
+	private synchronized Level nearestCachedLevel(int tilesPerRow) {
+		for (int finer = tilesPerRow; finer <= maxTilesPerRow; finer *= REDUCTION_FACTOR) {
+			Level level = levels.get(finer);
+			if (level != null) {
+				return level;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sums the {@code factor x factor} block of a finer level's tiles that makes up one tile.
+	 */
+	private static long blockSum(Level finer, int factor, int tilesPerRow, int row, int col) {
+		int finerTilesPerRow = tilesPerRow * factor;
+		long sum = 0;
+		for (int i = row * factor; i < (row + 1) * factor; i++) {
+			int rowStart = i * finerTilesPerRow;
+			for (int j = col * factor; j < (col + 1) * factor; j++) {
+				sum += finer.sums[rowStart + j];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the level of the given resolution, building it from the nearest cached
+	 * finer level or, if there is none, from the integral image.
+	 */
+	private Level getLevel(int tilesPerRow) {
+		Level level = levels.get(tilesPerRow);
+		if (level != null) {
+			return level;
+		}
+		if (tilesPerRow > maxTilesPerRow) {
+			throw new IllegalArgumentException(RESOLUTION_TOO_HIGH_MSG + tilesPerRow);
+		}
+		int finerTilesPerRow = tilesPerRow * REDUCTION_FACTOR;
+		if (finerTilesPerRow <= maxTilesPerRow && hasFinerLevel(finerTilesPerRow)) {
+			level = reduce(getLevel(finerTilesPerRow), tilesPerRow);
+		} else {
+			level = computeFromIntegral(tilesPerRow);
+		}
+		levels.put(tilesPerRow, level);
+		return level;
+	}
+
+	/**
+	 * Checks whether the given or any finer resolution is already cached.
+	 */
+	private boolean hasFinerLevel(int tilesPerRow) {
+		for (int finer = tilesPerRow; finer <= maxTilesPerRow; finer *= REDUCTION_FACTOR) {
+			if (levels.containsKey(finer)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes a level directly from the integral image, in O(tiles).
+	 */
+	private Level computeFromIntegral(int tilesPerRow) {
+		int squareSize = width / tilesPerRow;
+		int rows = getRows(tilesPerRow);
+		long[] sums = new long[rows * tilesPerRow];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < tilesPerRow; j++) {
+				sums[i * tilesPerRow + j] = integralImage.rectangleSum(i * squareSize, j * squareSize,
+						squareSize, squareSize);
+			}
+		}
+		return new Level(sums, squareSize);
+	}
+
+	/**
+	 * Reduces a finer level into the coarser one by summing each 2x2 block of tiles.
+	 */
+	private Level reduce(Level finer, int tilesPerRow) {
+		int finerTilesPerRow = tilesPerRow * REDUCTION_FACTOR;
+		int rows = getRows(tilesPerRow);
+		long[] sums = new long[rows * tilesPerRow];
+		for (int i = 0; i < rows; i++) {
+			int top = (i * REDUCTION_FACTOR) * finerTilesPerRow;
+			int bottom = top + finerTilesPerRow;
+			for (int j = 0; j < tilesPerRow; j++) {
+				int left = j * REDUCTION_FACTOR;
+				sums[i * tilesPerRow + j] = finer.sums[top + left] + finer.sums[top + left + 1] +
+						finer.sums[bottom + left] + finer.sums[bottom + left + 1];
+			}
+		}
+		return new Level(sums, finer.squareSize * REDUCTION_FACTOR);
+	}
+
+	/**
+	 * A single pyramid level: exact tile luminance sums and their derived brightness.
+	 */
+	private static class Level {
+		private final long[] sums;
+		private final int squareSize;
+		private final double[] brightness;
+
+		Level(long[] sums, int squareSize) {
+			this.sums = sums;
+			this.squareSize = squareSize;
+			this.brightness = new double[sums.length];
+			long pixelCount = (long) squareSize * squareSize;
+			for (int i = 0; i < sums.length; i++) {
+				brightness[i] = IntegralImage.toBrightness(sums[i], pixelCount);
+			}
+		}
+	}
+}
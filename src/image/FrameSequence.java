@@ -0,0 +1,284 @@
+package image;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Decodes the frames of an animation one at a time, as full row-major packed ARGB buffers.
+ * <p>
+ * The source is either a multi-image file read through an {@link ImageReader}, such as an
+ * animated GIF, or a directory of single images ordered by the number in their names
+ * ({@code frame2.png} before {@code frame10.png}); files that are not images are skipped.
+ * GIF frames are composited onto a logical screen that starts white, honouring each frame's
+ * position, transparent pixels and disposal method, so every returned frame is the complete
+ * picture that would be shown.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class FrameSequence implements AutoCloseable {
+	private static final String GIF_IMAGE_FORMAT = "javax_imageio_gif_image_1.0";
+	private static final String GIF_STREAM_FORMAT = "javax_imageio_gif_stream_1.0";
+	private static final String IMAGE_DESCRIPTOR = "ImageDescriptor";
+	private static final String GRAPHIC_CONTROL = "GraphicControlExtension";
+	private static final String SCREEN_DESCRIPTOR = "LogicalScreenDescriptor";
+	private static final String LEFT_ATTRIBUTE = "imageLeftPosition";
+	private static final String TOP_ATTRIBUTE = "imageTopPosition";
+	private static final String DISPOSAL_ATTRIBUTE = "disposalMethod";
+	private static final String SCREEN_WIDTH_ATTRIBUTE = "logicalScreenWidth";
+	private static final String SCREEN_HEIGHT_ATTRIBUTE = "logicalScreenHeight";
+	private static final String RESTORE_BACKGROUND = "restoreToBackgroundColor";
+	private static final String RESTORE_PREVIOUS = "restoreToPrevious";
+	private static final String NO_READER_MSG = "No image reader for ";
+	private static final String NO_FRAMES_MSG = "No frames in ";
+	private static final String FRAME_SIZE_MSG = "Frame size differs from the first frame: ";
+	private static final String DIGITS = "\\D+";
+	private static final int FIRST_IMAGE_INDEX = 0;
+	private static final int ALPHA_SHIFT = 24;
+
+	private final ImageInputStream input;
+	private final ImageReader reader;
+	private final File[] files;
+	private final int width;
+	private final int height;
+	private int nextIndex = 0;
+	private BufferedImage pending;
+	private IIOMetadata pendingMetadata;
+	private int[] canvas;
+	private int[] restoreCanvas;
+	private String previousDisposal;
+	private int previousLeft;
+	private int previousTop;
+	private int previousWidth;
+	private int previousHeight;
+
+	/**
+	 * Opens an animation file or a directory of frames, decoding its first frame.
+	 *
+	 * @param path the multi-image file or the frame directory
+	 * @throws IOException if the source cannot be read or has no frames
+	 */
+	public FrameSequence(String path) throws IOException {
+		File source = new File(path);
+		if (source.isDirectory()) {
+			this.input = null;
+			this.reader = null;
+			Set<String> suffixes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+			suffixes.addAll(Arrays.asList(ImageIO.getReaderFileSuffixes()));
+			this.files = source.listFiles(file -> file.isFile() &&
+					suffixes.contains(file.getName().substring(file.getName().lastIndexOf('.') + 1)));
+			if (files == null || files.length == 0) {
+				throw new IOException(NO_FRAMES_MSG + path);
+			}
+			Arrays.sort(files, Comparator.comparingLong(FrameSequence::frameNumber)
+					.thenComparing(File::getName));
+			this.pending = readFile(files[FIRST_IMAGE_INDEX]);
+			this.width = pending.getWidth();
+			this.height = pending.getHeight();
+			return;
+		}
+		this.files = null;
+		this.input = ImageIO.createImageInputStream(source);
+		Iterator<ImageReader> readers = input == null ?
+				null : ImageIO.getImageReaders(input);
+		if (readers == null || !readers.hasNext()) {
+			close();
+			throw new IOException(NO_READER_MSG + path);
+		}
+		this.reader = readers.next();
+		reader.setInput(input, false, false);
+		if (!readPending()) {
+			close();
+			throw new IOException(NO_FRAMES_MSG + path);
+		}
+		Node screen = findNode(reader.getStreamMetadata(), GIF_STREAM_FORMAT, SCREEN_DESCRIPTOR);
+		this.width = screen == null ? pending.getWidth() :
+				intAttribute(screen, SCREEN_WIDTH_ATTRIBUTE);
+		this.height = screen == null ? pending.getHeight() :
+				intAttribute(screen, SCREEN_HEIGHT_ATTRIBUTE);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Decodes the next frame into a new buffer.
+	 *
+	 * @return the frame's row-major packed ARGB pixels, or {@code null} after the last frame
+	 * @throws IOException if decoding fails or a frame has the wrong size
+	 */
+	public int[] nextFrame() throws IOException {
+		if (files != null) {
+			if (pending == null && nextIndex < files.length) {
+				pending = readFile(files[nextIndex]);
+			}
+			if (pending == null) {
+				return null;
+			}
+			if (pending.getWidth() != width || pending.getHeight() != height) {
+				throw new IOException(FRAME_SIZE_MSG + files[nextIndex]);
+			}
+			int[] frame = new int[width * height];
+			Image.readPixels(pending, frame);
+			pending = null;
+			nextIndex++;
+			return frame;
+		}
+		if (pending == null && !readPending()) {
+			return null;
+		}
+		compositePending();
+		pending = null;
+		return canvas.clone();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.dispose();
+		}
+		if (input != null) {
+			input.close();
+		}
+	}
+
+	/**
+	 * Reads the next image of the multi-image file into {@link #pending}.
+	 *
+	 * @return false if there are no more images
+	 */
+	private boolean readPending() throws IOException {
+		try {
+			pending = reader.read(nextIndex);
+			pendingMetadata = reader.getImageMetadata(nextIndex);
+		} catch (IndexOutOfBoundsException e) {
+			return false;
+		} catch (IIOException e) {
+			// A truncated trailer after at least one frame ends the animation
+			if (nextIndex == FIRST_IMAGE_INDEX) {
+				throw e;
+			}
+			return false;
+		}
+		nextIndex++;
+		return true;
+	}
+
+	/**
+	 * Disposes of the previous frame and draws the pending one onto the canvas.
+	 */
+	private void compositePending() {
+		if (canvas == null) {
+			canvas = new int[width * height];
+			Arrays.fill(canvas, ImageProcessor.WHITE_RGB);
+		} else if (RESTORE_BACKGROUND.equals(previousDisposal)) {
+			fillRect(previousLeft, previousTop, previousWidth, previousHeight);
+		} else if (RESTORE_PREVIOUS.equals(previousDisposal) && restoreCanvas != null) {
+			System.arraycopy(restoreCanvas, 0, canvas, 0, canvas.length);
+		}
+
+		Node descriptor = findNode(pendingMetadata, GIF_IMAGE_FORMAT, IMAGE_DESCRIPTOR);
+		Node control = findNode(pendingMetadata, GIF_IMAGE_FORMAT, GRAPHIC_CONTROL);
+		int left = descriptor == null ? 0 : intAttribute(descriptor, LEFT_ATTRIBUTE);
+		int top = descriptor == null ? 0 : intAttribute(descriptor, TOP_ATTRIBUTE);
+		previousDisposal = control == null ? null :
+				control.getAttributes().getNamedItem(DISPOSAL_ATTRIBUTE).getNodeValue();
+		if (RESTORE_PREVIOUS.equals(previousDisposal)) {
+			restoreCanvas = canvas.clone();
+		}
+
+		int frameWidth = pending.getWidth();
+		int frameHeight = pending.getHeight();
+		int[] framePixels = new int[frameWidth * frameHeight];
+		Image.readPixels(pending, framePixels);
+		int drawWidth = Math.min(frameWidth, width - left);
+		int drawHeight = Math.min(frameHeight, height - top);
+		for (int row = 0; row < drawHeight; row++) {
+			for (int col = 0; col < drawWidth; col++) {
+				int rgb = framePixels[row * frameWidth + col];
+				if (rgb >>> ALPHA_SHIFT != 0) {
+					canvas[(top + row) * width + left + col] = rgb;
+				}
+			}
+		}
+		previousLeft = left;
+		previousTop = top;
+		previousWidth = Math.max(0, drawWidth);
+		previousHeight = Math.max(0, drawHeight);
+	}
+
+	/**
+	 * Fills a rectangle of the canvas with the white background.
+	 */
+	private void fillRect(int left, int top, int rectWidth, int rectHeight) {
+		for (int row = top; row < top + rectHeight; row++) {
+			Arrays.fill(canvas, row * width + left, row * width + left + rectWidth,
+					ImageProcessor.WHITE_RGB);
+		}
+	}
+
+	/**
+	 * Decodes a single frame file.
+	 */
+	private static BufferedImage readFile(File file) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if (image == null) {
+			throw new IOException(NO_READER_MSG + file);
+		}
+		return image;
+	}
+
+	/**
+	 * Returns the number in a frame file's name, or -1 if it has none.
+	 */
+	private static long frameNumber(File file) {
+		for (String digits : file.getName().split(DIGITS)) {
+			if (!digits.isEmpty()) {
+				try {
+					return Long.parseLong(digits);
+				} catch (NumberFormatException e) {
+					return -1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first child of the given name in a metadata tree, or {@code null}.
+	 */
+	private static Node findNode(IIOMetadata metadata, String format, String name) {
+		if (metadata == null || !format.equals(metadata.getNativeMetadataFormatName())) {
+			return null;
+		}
+		for (Node node = metadata.getAsTree(format).getFirstChild(); node != null;
+			 node = node.getNextSibling()) {
+			if (node.getNodeName().equals(name)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	private static int intAttribute(Node node, String name) {
+		return Integer.parseInt(node.getAttributes().getNamedItem(name).getNodeValue());
+	}
+}
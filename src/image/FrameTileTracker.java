@@ -0,0 +1,131 @@
+package image;
+
+import java.util.Arrays;
+
+/**
+ * Tile brightness over a sequence of equally sized frames, recomputed only where a frame
+ * differs from the previous one.
+ * <p>
+ * Tiles are laid out over the unpadded frame exactly as in {@link UnpaddedTileGrid}. For every
+ * new frame, each tile's pixel rows are first compared with the previous frame's through the
+ * intrinsic {@link Arrays#equals(int[], int, int, int[], int, int)}, which is exact and cheaper
+ * than any checksum that would still have to read every pixel. Only tiles with a changed pixel
+ * have their luminance summed again, through the runtime's {@link LuminanceKernel}. The results
+ * are the same exact averages a fresh {@link UnpaddedTileGrid} would give.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class FrameTileTracker {
+	private static final String FRAME_SIZE_MSG = "Frame of %d pixels does not match the frame size" +
+			" %dx%d (%d pixels).";
+
+	private final int width;
+	private final int height;
+	private final int tilesPerRow;
+	private final int rows;
+	private final int[] colBounds;
+	private final int[] rowBounds;
+	private final double[] brightness;
+	private final LuminanceKernel kernel = LuminanceKernel.get();
+	private int[] previous;
+	private int changedTiles;
+
+	/**
+	 * Constructs a tracker for frames of the given size.
+	 *
+	 * @param width       the frame width
+	 * @param height      the frame height
+	 * @param tilesPerRow the resolution (number of tiles per row), at most the width
+	 */
+	public FrameTileTracker(int width, int height, int tilesPerRow) {
+		this.width = width;
+		this.height = height;
+		this.tilesPerRow = tilesPerRow;
+		this.rows = ImageProcessor.tileRows(width, height, tilesPerRow);
+		this.colBounds = new int[tilesPerRow + 1];
+		for (int j = 0; j <= tilesPerRow; j++) {
+			colBounds[j] = ImageProcessor.tileBoundary(width, tilesPerRow, j);
+		}
+		this.rowBounds = new int[rows + 1];
+		for (int i = 0; i <= rows; i++) {
+			rowBounds[i] = ImageProcessor.tileBoundary(height, rows, i);
+		}
+		this.brightness = new double[rows * tilesPerRow];
+	}
+
+	/**
+	 * Returns the number of tile rows.
+	 *
+	 * @return the number of tile rows
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of tiles per row.
+	 *
+	 * @return the resolution
+	 */
+	public int getTilesPerRow() {
+		return tilesPerRow;
+	}
+
+	/**
+	 * Returns how many tiles the last {@link #update} recomputed.
+	 *
+	 * @return the number of changed tiles
+	 */
+	public int getChangedTiles() {
+		return changedTiles;
+	}
+
+	/**
+	 * Moves to the next frame, recomputing the brightness of the tiles that changed.
+	 * The frame's buffer is kept for comparison with the next one, so it must not be modified
+	 * afterwards.
+	 *
+	 * @param pixels the row-major packed ARGB pixels of the frame
+	 * @return the row-major tile brightness, valid until the next update
+	 * @throws IllegalArgumentException if the frame is not of the tracker's size
+	 */
+	public double[] update(int[] pixels) {
+		if (pixels.length != width * height) {
+			throw new IllegalArgumentException(String.format(FRAME_SIZE_MSG, pixels.length,
+					width, height, width * height));
+		}
+		changedTiles = 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < tilesPerRow; j++) {
+				if (previous != null && tileUnchanged(pixels, i, j)) {
+					continue;
+				}
+				long sum = 0;
+				int tileWidth = colBounds[j + 1] - colBounds[j];
+				for (int row = rowBounds[i]; row < rowBounds[i + 1]; row++) {
+					sum += kernel.scaledLuminanceSum(pixels, row * width + colBounds[j], tileWidth);
+				}
+				brightness[i * tilesPerRow + j] = IntegralImage.toBrightness(sum,
+						(long) tileWidth * (rowBounds[i + 1] - rowBounds[i]));
+				changedTiles++;
+			}
+		}
+		previous = pixels;
+		return brightness;
+	}
+
+	/**
+	 * Returns whether every pixel of a tile equals the previous frame's.
+	 */
+	private boolean tileUnchanged(int[] pixels, int tileRow, int tileCol) {
+		for (int row = rowBounds[tileRow]; row < rowBounds[tileRow + 1]; row++) {
+			int from = row * width + colBounds[tileCol];
+			int to = row * width + colBounds[tileCol + 1];
+			if (!Arrays.equals(pixels, from, to, previous, from, to)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -3,40 +3,102 @@ package image;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 
 /**
  * A package-private class of the package image.
+ * Pixels are stored row-major in a single packed ARGB {@code int[]},
+ * so no object is allocated per pixel.
  *
  * @author Dan Nirel
  */
 public class Image {
+	private static final int OPAQUE_ALPHA = 0xFF000000;
+	private static final int RGB_MASK = 0x00FFFFFF;
+	private static final int BGR_BYTES = 3;
+	private static final String UNREADABLE_MSG = "Unsupported image format: ";
 
-	private final Color[][] pixelArray;
+	private final int[] pixels;
 	private final int width;
 	private final int height;
 
 	public Image(String filename) throws IOException {
-		BufferedImage im = ImageIO.read(new File(filename));
+		this(read(filename));
+	}
+
+	/**
+	 * Copies the pixels of an already decoded image.
+	 *
+	 * @param im the decoded image
+	 */
+	public Image(BufferedImage im) {
 		width = im.getWidth();
 		height = im.getHeight();
 
 
-		pixelArray = new Color[height][width];
+		pixels = new int[height * width];
+		readPixels(im, pixels);
+	}
+
+	public Image(Color[][] pixelArray, int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.pixels = new int[height * width];
 		for (int i = 0; i < height; i++) {
 			for (int j = 0; j < width; j++) {
-				pixelArray[i][j] = new Color(im.getRGB(j, i));
+				pixels[i * width + j] = pixelArray[i][j].getRGB();
 			}
 		}
 	}
 
-	public Image(Color[][] pixelArray, int width, int height) {
-		this.pixelArray = pixelArray;
+	/**
+	 * Wraps an existing row-major packed ARGB buffer without copying it.
+	 *
+	 * @param pixels the packed pixels, of length {@code width * height}
+	 * @param width  the image width
+	 * @param height the image height
+	 */
+	public Image(int[] pixels, int width, int height) {
+		this.pixels = pixels;
 		this.width = width;
 		this.height = height;
 	}
 
+	/**
+	 * Loads an image already padded to power-of-two dimensions and box-filtered down by the
+	 * given factor, decoding it in strips so the full-resolution pixels are never all held.
+	 * Tile brightness over the result is within {@code 0.5 / 255} of the full-resolution value
+	 * for every resolution up to the result's width; see
+	 * {@link StripImageLoader#loadDownscaled(int, int)}.
+	 *
+	 * @param filename the image file
+	 * @param factor   the downscaling factor, a power of two
+	 * @return the padded, downscaled image
+	 * @throws IOException if the file cannot be read or decoded
+	 */
+	public static Image loadDownscaled(String filename, int factor) throws IOException {
+		return new StripImageLoader(filename).loadDownscaled(factor,
+				StripImageLoader.DEFAULT_STRIP_HEIGHT);
+	}
+
+	/**
+	 * Decodes an image file, failing on formats no reader supports.
+	 */
+	private static BufferedImage read(String filename) throws IOException {
+		BufferedImage im = ImageIO.read(new File(filename));
+		if (im == null) {
+			throw new IOException(UNREADABLE_MSG + filename);
+		}
+		return im;
+	}
+
 	public int getWidth() {
 		return width;
 	}
@@ -46,18 +108,99 @@ public class Image {
 	}
 
 	public Color getPixel(int x, int y) {
-		return pixelArray[x][y];
+		return new Color(getRGB(x, y));
+	}
+
+	/**
+	 * Returns the packed ARGB value of the pixel at the given row and column.
+	 *
+	 * @param row the pixel row
+	 * @param col the pixel column
+	 * @return the packed ARGB value
+	 */
+	public int getRGB(int row, int col) {
+		return pixels[row * width + col];
+	}
+
+	/**
+	 * Returns the packed ARGB value of the pixel at the given row-major index.
+	 *
+	 * @param index the pixel index, {@code row * width + col}
+	 * @return the packed ARGB value
+	 */
+	public int getRGB(int index) {
+		return pixels[index];
+	}
+
+	/**
+	 * Returns the backing row-major packed ARGB buffer (not a copy).
+	 *
+	 * @return the pixel buffer
+	 */
+	int[] getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Copies all pixels of a BufferedImage into a row-major packed ARGB buffer, reading
+	 * the backing arrays directly for the common INT_ARGB, INT_RGB and 3BYTE_BGR layouts
+	 * and falling back to the bulk {@code getRGB} overload otherwise.
+	 *
+	 * @param im   the source image
+	 * @param dest the destination buffer, of length at least {@code width * height}
+	 */
+	static void readPixels(BufferedImage im, int[] dest) {
+		int w = im.getWidth();
+		int h = im.getHeight();
+		WritableRaster raster = im.getRaster();
+		boolean unshifted = raster.getParent() == null &&
+				raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+		switch (im.getType()) {
+			case BufferedImage.TYPE_INT_ARGB:
+			case BufferedImage.TYPE_INT_RGB: {
+				SampleModel model = raster.getSampleModel();
+				if (unshifted && model instanceof SinglePixelPackedSampleModel &&
+						((SinglePixelPackedSampleModel) model).getScanlineStride() == w) {
+					int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+					if (im.getType() == BufferedImage.TYPE_INT_ARGB) {
+						System.arraycopy(data, 0, dest, 0, w * h);
+					} else {
+						for (int i = 0; i < w * h; i++) {
+							dest[i] = data[i] | OPAQUE_ALPHA;
+						}
+					}
+					return;
+				}
+				break;
+			}
+			case BufferedImage.TYPE_3BYTE_BGR: {
+				SampleModel model = raster.getSampleModel();
+				if (unshifted && model instanceof ComponentSampleModel &&
+						((ComponentSampleModel) model).getScanlineStride() == w * BGR_BYTES) {
+					byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+					for (int i = 0, b = 0; i < w * h; i++, b += BGR_BYTES) {
+						dest[i] = OPAQUE_ALPHA |
+								(data[b + 2] & ImageProcessor.CHANNEL_MASK) << ImageProcessor.RED_SHIFT |
+								(data[b + 1] & ImageProcessor.CHANNEL_MASK) << ImageProcessor.GREEN_SHIFT |
+								(data[b] & ImageProcessor.CHANNEL_MASK);
+					}
+					return;
+				}
+				break;
+			}
+			default:
+				break;
+		}
+		im.getRGB(0, 0, w, h, dest, 0, w);
 	}
 
 	public void saveImage(String fileName) {
-		// Initialize BufferedImage, assuming Color[][] is already properly populated.
-		BufferedImage bufferedImage = new BufferedImage(pixelArray[0].length, pixelArray.length,
+		BufferedImage bufferedImage = new BufferedImage(width, height,
 				BufferedImage.TYPE_INT_RGB);
-		// Set each pixel of the BufferedImage to the color from the Color[][].
-		for (int x = 0; x < pixelArray.length; x++) {
-			for (int y = 0; y < pixelArray[x].length; y++) {
-				bufferedImage.setRGB(y, x, pixelArray[x][y].getRGB());
-			}
+		// Write the packed values straight into the image's backing int array.
+		int[] data = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+		for (int i = 0; i < data.length; i++) {
+			data[i] = pixels[i] & RGB_MASK;
 		}
 		File outputfile = new File(fileName + ".jpeg");
 		try {
@@ -1,6 +1,7 @@
 package image;
 
 import java.awt.*;
+import java.util.Arrays;
 
 /**
  * Utility class for image processing operations such as padding, splitting, brightness calculation, etc.
@@ -11,9 +12,14 @@ public class ImageProcessor {
 	final static double RED = 0.2126;
 	final static double GREEN = 0.7152;
 	final static double BLUE = 0.0722;
-	private static final int HALF_DIVISOR = 2;
+	final static int CHANNEL_MASK = 0xFF;
+	final static int RED_SHIFT = 16;
+	final static int GREEN_SHIFT = 8;
+	final static int HALF_DIVISOR = 2;
+	private static final int MIN_TILE_ROWS = 1;
 	private static final int INITIAL_POWER = 1;
 	private static final int POWER_OF_TWO_BASE = 2;
+	final static int WHITE_RGB = Color.WHITE.getRGB();
 
 
 	// Private constructor to prevent instantiation
@@ -35,60 +41,55 @@ public class ImageProcessor {
 			return sourceImage;
 		}
 		// Create a white canvas of target size
-		Color[][] paddedPixels = new Color[paddedHeight][paddedWidth];
-		for (int row = 0; row < paddedHeight; row++) {
-			for (int col = 0; col < paddedWidth; col++) {
-				paddedPixels[row][col] = Color.WHITE;
-			}
-		}
+		int[] paddedPixels = new int[paddedHeight * paddedWidth];
+		Arrays.fill(paddedPixels, WHITE_RGB);
 
 		// Calculate offsets to center the original image
 		int horizontalOffset = (paddedWidth - originalWidth) / HALF_DIVISOR;
 		int verticalOffset   = (paddedHeight - originalHeight) / HALF_DIVISOR;
 
-		// Copy original pixels into centered position
+		// Copy original rows into centered position
+		int[] sourcePixels = sourceImage.getPixels();
 		for (int row = 0; row < originalHeight; row++) {
-			for (int col = 0; col < originalWidth; col++) {
-				paddedPixels[row + verticalOffset][col + horizontalOffset] =
-						sourceImage.getPixel(row, col);
-			}
+			System.arraycopy(sourcePixels, row * originalWidth, paddedPixels,
+					(row + verticalOffset) * paddedWidth + horizontalOffset, originalWidth);
 		}
 
 		return new Image(paddedPixels, paddedWidth, paddedHeight);
 	}
 
 	/**
-	 * Splits the image into a grid of square sub-images based on the specified number of sub-images per row.
-	 * Each sub-image is a square block of pixels.
+	 * Returns a virtual view of the image padded symmetrically to the next power-of-two
+	 * dimensions. Unlike {@link #padToPowerOfTwo(Image)}, no pixels are allocated or copied.
+	 *
+	 * @param sourceImage the source Image
+	 * @return the padded view
+	 */
+	public static PaddedImage padVirtually(Image sourceImage) {
+		return new PaddedImage(sourceImage, nextPowerOfTwo(sourceImage.getWidth()),
+				nextPowerOfTwo(sourceImage.getHeight()));
+	}
+
+	/**
+	 * Splits the image into a grid of square tiles based on the specified number of tiles per row.
+	 * Each tile is a view over a square block of the source pixels; no pixels are copied.
 	 *
 	 * @param sourceImage      the source Image to split
-	 * @param subImagesPerRow  the number of sub-images per row (grid width)
-	 * @return a 2D array of sub-images [numberOfRows][subImagesPerRow]
+	 * @param subImagesPerRow  the number of tiles per row (grid width)
+	 * @return a 2D array of tiles [numberOfRows][subImagesPerRow]
 	 */
-	public static Image[][] splitImage(Image sourceImage, int subImagesPerRow) {
+	public static ImageTile[][] splitImage(Image sourceImage, int subImagesPerRow) {
 		int fullWidth   = sourceImage.getWidth();
 		int fullHeight  = sourceImage.getHeight();
 		int squareSize  = fullWidth / subImagesPerRow;
 		int numberOfRows = fullHeight / squareSize;
 
-		Image[][] grid = new Image[numberOfRows][subImagesPerRow];
+		ImageTile[][] grid = new ImageTile[numberOfRows][subImagesPerRow];
 
 		for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
 			for (int colIndex = 0; colIndex < subImagesPerRow; colIndex++) {
-				Color[][] cellPixels = new Color[squareSize][squareSize];
-				// Fill the cellPixels array with the corresponding pixels from the source image
-				for (int pixelRow = 0; pixelRow < squareSize; pixelRow++) {
-					for (int pixelCol = 0; pixelCol < squareSize; pixelCol++) {
-						// Calculate the source pixel coordinates
-						int sourceY = colIndex * squareSize + pixelCol;
-						int sourceX = rowIndex * squareSize + pixelRow;
-						cellPixels[pixelRow][pixelCol] =
-								sourceImage.getPixel(sourceX, sourceY);
-					}
-				}
-				// Create a new Image for the sub-image and assign it to the grid
-				grid[rowIndex][colIndex] =
-						new Image(cellPixels, squareSize, squareSize);
+				grid[rowIndex][colIndex] = new ImageTile(sourceImage, rowIndex * squareSize,
+						colIndex * squareSize, squareSize, squareSize);
 			}
 		}
 
@@ -102,20 +103,58 @@ public class ImageProcessor {
 	 * @return the average brightness as a double value
 	 */
 	public static double computeAverageBrightness(Image image) {
-		int width  = image.getWidth();
-		int height = image.getHeight();
-		double totalGrayValue = 0.0;
+		return computeAverageBrightness(
+				new ImageTile(image, 0, 0, image.getWidth(), image.getHeight()));
+	}
 
+	/**
+	 * Computes the average brightness of a tile, reading the parent image buffer in place.
+	 * Each tile row is summed by the runtime's {@link LuminanceKernel} as exact scaled integers.
+	 *
+	 * @param tile the tile to compute brightness for
+	 * @return the average brightness as a double value
+	 */
+	public static double computeAverageBrightness(ImageTile tile) {
+		int width  = tile.getWidth();
+		int height = tile.getHeight();
+		int imageWidth = tile.getImage().getWidth();
+		long totalGrayValue = 0;
+
+		int[] pixels = tile.getImage().getPixels();
+		LuminanceKernel kernel = LuminanceKernel.get();
 		for (int row = 0; row < height; row++) {
-			for (int col = 0; col < width; col++) {
-				Color pixelColor = image.getPixel(row, col);
-				totalGrayValue += (pixelColor.getRed() * RED +
-						pixelColor.getGreen() * GREEN +
-						pixelColor.getBlue() * BLUE);
-			}
+			int rowStart = (tile.getRow() + row) * imageWidth + tile.getCol();
+			totalGrayValue += kernel.scaledLuminanceSum(pixels, rowStart, width);
 		}
 
-		return totalGrayValue / (width * height * MAX_RGB);
+		return IntegralImage.toBrightness(totalGrayValue, (long) width * height);
+	}
+
+	/**
+	 * Computes how many rows of tiles keep tiles closest to square when an image is
+	 * divided into the given number of tiles per row, without padding.
+	 *
+	 * @param width       the image width
+	 * @param height      the image height
+	 * @param tilesPerRow the number of tiles per row
+	 * @return the number of tile rows, at least 1
+	 */
+	public static int tileRows(int width, int height, int tilesPerRow) {
+		return Math.max(MIN_TILE_ROWS,
+				(int) Math.min(height, Math.round((double) height * tilesPerRow / width)));
+	}
+
+	/**
+	 * Returns the pixel position at which a tile starts when a length is divided into
+	 * the given number of tiles, so tiles differ in size by at most one pixel.
+	 *
+	 * @param length the length to divide, in pixels
+	 * @param tiles  the number of tiles
+	 * @param index  the tile index; {@code tiles} gives the end of the last tile
+	 * @return the start position of the tile
+	 */
+	public static int tileBoundary(int length, int tiles, int index) {
+		return (int) ((long) index * length / tiles);
 	}
 
 	/**
@@ -124,7 +163,7 @@ public class ImageProcessor {
 	 * @param n positive integer
 	 * @return smallest power of two >= n
 	 */
-	private static int nextPowerOfTwo(int n) {
+	static int nextPowerOfTwo(int n) {
 		int p = INITIAL_POWER;
 		while (p < n) {
 			p *= POWER_OF_TWO_BASE;
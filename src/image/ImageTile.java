@@ -0,0 +1,81 @@
+package image;
+
+/**
+ * A lightweight, zero-copy view of a rectangular region of an {@link Image}.
+ * <p>
+ * A tile only records its origin and size within the parent image; pixel reads
+ * go straight to the parent's packed buffer, so creating a tile copies nothing.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class ImageTile {
+	private final Image image;
+	private final int row;
+	private final int col;
+	private final int width;
+	private final int height;
+
+	/**
+	 * Constructs a view of a region of the given image.
+	 *
+	 * @param image  the parent image
+	 * @param row    the top row of the region in the parent image
+	 * @param col    the left column of the region in the parent image
+	 * @param width  the region width
+	 * @param height the region height
+	 */
+	public ImageTile(Image image, int row, int col, int width, int height) {
+		this.image = image;
+		this.row = row;
+		this.col = col;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Returns the parent image of this tile.
+	 *
+	 * @return the parent image
+	 */
+	public Image getImage() {
+		return image;
+	}
+
+	/**
+	 * Returns the top row of this tile in the parent image.
+	 *
+	 * @return the row offset
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * Returns the left column of this tile in the parent image.
+	 *
+	 * @return the column offset
+	 */
+	public int getCol() {
+		return col;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the packed ARGB value of a pixel, in tile-relative coordinates.
+	 *
+	 * @param tileRow the pixel row within the tile
+	 * @param tileCol the pixel column within the tile
+	 * @return the packed ARGB value
+	 */
+	public int getRGB(int tileRow, int tileCol) {
+		return image.getRGB(row + tileRow, col + tileCol);
+	}
+}
@@ -0,0 +1,198 @@
+package image;
+
+/**
+ * A summed-area table of pixel luminance over an {@link Image}.
+ * <p>
+ * The table is built once in a single pass over the pixels, after which the
+ * average brightness of any axis-aligned rectangle is answered in O(1).
+ * Luminance is accumulated as exact integers, using the {@link ImageProcessor}
+ * RED/GREEN/BLUE weights scaled by {@link #LUMA_SCALE}, so sums never lose precision.
+ * The per-pixel luminance of each row is computed by the runtime's {@link LuminanceKernel}.
+ * </p>
+ *
+ * <p>
+ * When built over a {@link PaddedImage}, only the source pixels are indexed. Queries are
+ * in padded coordinates, and the padding contributes a constant white luminance per pixel,
+ * so a rectangle lying entirely in the padding is answered without any table lookup.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class IntegralImage {
+	private static final int LUMA_SCALE = 10000;
+	static final int RED_WEIGHT = (int) Math.round(ImageProcessor.RED * LUMA_SCALE);
+	static final int GREEN_WEIGHT = (int) Math.round(ImageProcessor.GREEN * LUMA_SCALE);
+	static final int BLUE_WEIGHT = (int) Math.round(ImageProcessor.BLUE * LUMA_SCALE);
+	private static final double MAX_LUMA = (double) LUMA_SCALE * ImageProcessor.MAX_RGB;
+
+	private static final long WHITE_LUMA = scaledLuminance(ImageProcessor.WHITE_RGB);
+
+	private final int width;
+	private final int height;
+	private final int sourceWidth;
+	private final int sourceHeight;
+	private final int horizontalOffset;
+	private final int verticalOffset;
+	private final int stride;
+	private final long[] sums;
+
+	/**
+	 * Builds the summed-area table of the given image.
+	 *
+	 * @param image the image to index
+	 */
+	public IntegralImage(Image image) {
+		this(image, image.getWidth(), image.getHeight(), 0, 0);
+	}
+
+	/**
+	 * Builds the summed-area table of a virtually padded image, indexing only its source.
+	 *
+	 * @param paddedImage the padded view to index
+	 */
+	public IntegralImage(PaddedImage paddedImage) {
+		this(paddedImage.getSource(), paddedImage.getWidth(), paddedImage.getHeight(),
+				paddedImage.getHorizontalOffset(), paddedImage.getVerticalOffset());
+	}
+
+	private IntegralImage(Image source, int width, int height, int horizontalOffset,
+						  int verticalOffset) {
+		this.width = width;
+		this.height = height;
+		this.sourceWidth = source.getWidth();
+		this.sourceHeight = source.getHeight();
+		this.horizontalOffset = horizontalOffset;
+		this.verticalOffset = verticalOffset;
+		this.stride = sourceWidth + 1;
+		this.sums = new long[(sourceHeight + 1) * stride];
+		int[] pixels = source.getPixels();
+		int[] rowLuminance = new int[sourceWidth];
+		LuminanceKernel kernel = LuminanceKernel.get();
+		for (int row = 0; row < sourceHeight; row++) {
+			kernel.scaledLuminance(pixels, row * sourceWidth, sourceWidth, rowLuminance);
+			long rowSum = 0;
+			int above = row * stride;
+			int current = above + stride;
+			for (int col = 0; col < sourceWidth; col++) {
+				rowSum += rowLuminance[col];
+				sums[current + col + 1] = sums[above + col + 1] + rowSum;
+			}
+		}
+	}
+
+	/**
+	 * Returns the width of the indexed image.
+	 *
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the indexed image.
+	 *
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the width of the source image, without padding.
+	 *
+	 * @return the source width in pixels
+	 */
+	public int getSourceWidth() {
+		return sourceWidth;
+	}
+
+	/**
+	 * Returns the height of the source image, without padding.
+	 *
+	 * @return the source height in pixels
+	 */
+	public int getSourceHeight() {
+		return sourceHeight;
+	}
+
+	/**
+	 * Returns the column at which the source image starts in padded coordinates.
+	 *
+	 * @return the horizontal offset, or 0 if there is no padding
+	 */
+	public int getHorizontalOffset() {
+		return horizontalOffset;
+	}
+
+	/**
+	 * Returns the row at which the source image starts in padded coordinates.
+	 *
+	 * @return the vertical offset, or 0 if there is no padding
+	 */
+	public int getVerticalOffset() {
+		return verticalOffset;
+	}
+
+	/**
+	 * Computes the average brightness of a rectangle of pixels in O(1).
+	 *
+	 * @param row        the top row of the rectangle
+	 * @param col        the left column of the rectangle
+	 * @param rectWidth  the rectangle width, in pixels
+	 * @param rectHeight the rectangle height, in pixels
+	 * @return the average brightness, in [0,1]
+	 */
+	public double averageBrightness(int row, int col, int rectWidth, int rectHeight) {
+		return toBrightness(rectangleSum(row, col, rectWidth, rectHeight),
+				(long) rectWidth * rectHeight);
+	}
+
+	/**
+	 * Returns the scaled luminance sum of a rectangle of pixels in O(1).
+	 * Sums of disjoint rectangles can be added exactly and converted with {@link #toBrightness}.
+	 *
+	 * @param row        the top row of the rectangle
+	 * @param col        the left column of the rectangle
+	 * @param rectWidth  the rectangle width, in pixels
+	 * @param rectHeight the rectangle height, in pixels
+	 * @return the scaled luminance sum
+	 */
+	public long rectangleSum(int row, int col, int rectWidth, int rectHeight) {
+		long area = (long) rectWidth * rectHeight;
+		// Clip the rectangle to the source image; the rest of it is white padding
+		int top = Math.max(row - verticalOffset, 0);
+		int bottom = Math.min(row + rectHeight - verticalOffset, sourceHeight);
+		int left = Math.max(col - horizontalOffset, 0);
+		int right = Math.min(col + rectWidth - horizontalOffset, sourceWidth);
+		if (top >= bottom || left >= right) {
+			return area * WHITE_LUMA;
+		}
+		long sourceArea = (long) (bottom - top) * (right - left);
+		int topRow = top * stride;
+		int bottomRow = bottom * stride;
+		long sourceSum = sums[bottomRow + right] - sums[topRow + right] -
+				sums[bottomRow + left] + sums[topRow + left];
+		return sourceSum + (area - sourceArea) * WHITE_LUMA;
+	}
+
+	/**
+	 * Converts a scaled luminance sum over a number of pixels to an average brightness.
+	 *
+	 * @param sum        the scaled luminance sum
+	 * @param pixelCount the number of pixels summed
+	 * @return the average brightness, in [0,1]
+	 */
+	public static double toBrightness(long sum, long pixelCount) {
+		return sum / ((double) pixelCount * MAX_LUMA);
+	}
+
+	/**
+	 * Returns the luminance of a packed ARGB pixel, scaled by {@link #LUMA_SCALE}.
+	 */
+	static long scaledLuminance(int rgb) {
+		return ((rgb >> ImageProcessor.RED_SHIFT) & ImageProcessor.CHANNEL_MASK) * (long) RED_WEIGHT +
+				((rgb >> ImageProcessor.GREEN_SHIFT) & ImageProcessor.CHANNEL_MASK) * (long) GREEN_WEIGHT +
+				(rgb & ImageProcessor.CHANNEL_MASK) * (long) BLUE_WEIGHT;
+	}
+}
@@ -0,0 +1,81 @@
+package image;
+
+import java.util.logging.Logger;
+
+/**
+ * Computes the scaled luminance of runs of packed ARGB pixels, the innermost loop of every
+ * brightness computation.
+ * <p>
+ * The kernel is chosen once, at class initialization. When the {@code jdk.incubator.vector}
+ * module is resolved (run with {@code --add-modules jdk.incubator.vector}), a SIMD kernel
+ * processes whole vector lanes of pixels at a time; otherwise, or when the
+ * {@code scalarLuminance} system property is {@code true}, the plain scalar loop is used.
+ * Both compute exactly the same integers as {@link IntegralImage#scaledLuminance(int)}.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+abstract class LuminanceKernel {
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+	private static final String VECTOR_KERNEL_CLASS = "image.VectorLuminanceKernel";
+	private static final String SCALAR_PROPERTY = "scalarLuminance";
+	private static final String VECTOR_UNAVAILABLE_MSG =
+			"Vector luminance kernel unavailable, using the scalar kernel: ";
+
+	private static final LuminanceKernel INSTANCE = select();
+
+	/**
+	 * Returns the kernel selected for this runtime.
+	 *
+	 * @return the luminance kernel
+	 */
+	static LuminanceKernel get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the scalar kernel, regardless of the runtime.
+	 *
+	 * @return the scalar luminance kernel
+	 */
+	static LuminanceKernel scalar() {
+		return new ScalarLuminanceKernel();
+	}
+
+	/**
+	 * Writes the scaled luminance of a run of pixels.
+	 *
+	 * @param pixels the packed ARGB pixels
+	 * @param offset the index of the first pixel
+	 * @param length the number of pixels
+	 * @param dest   the array receiving the luminance of pixel {@code offset + i} at index {@code i}
+	 */
+	abstract void scaledLuminance(int[] pixels, int offset, int length, int[] dest);
+
+	/**
+	 * Returns the sum of the scaled luminance of a run of pixels.
+	 *
+	 * @param pixels the packed ARGB pixels
+	 * @param offset the index of the first pixel
+	 * @param length the number of pixels
+	 * @return the scaled luminance sum
+	 */
+	abstract long scaledLuminanceSum(int[] pixels, int offset, int length);
+
+	/**
+	 * Loads the vector kernel if its module is resolved, or falls back to the scalar one.
+	 */
+	private static LuminanceKernel select() {
+		if (Boolean.getBoolean(SCALAR_PROPERTY) ||
+				ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+			return scalar();
+		}
+		try {
+			return (LuminanceKernel) Class.forName(VECTOR_KERNEL_CLASS)
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			Logger.getGlobal().warning(VECTOR_UNAVAILABLE_MSG + e);
+			return scalar();
+		}
+	}
+}
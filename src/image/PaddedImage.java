@@ -0,0 +1,86 @@
+package image;
+
+/**
+ * A virtual, power-of-two padded view of an {@link Image}.
+ * <p>
+ * The view reports the padded dimensions and centers the source image in them, like
+ * {@link ImageProcessor#padToPowerOfTwo(Image)}, but no padded canvas is ever allocated:
+ * coordinates outside the source simply read as white.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class PaddedImage {
+	private final Image source;
+	private final int width;
+	private final int height;
+	private final int horizontalOffset;
+	private final int verticalOffset;
+
+	/**
+	 * Constructs a padded view of the given image.
+	 *
+	 * @param source the image to pad
+	 * @param width  the padded width, at least the source width
+	 * @param height the padded height, at least the source height
+	 */
+	PaddedImage(Image source, int width, int height) {
+		this.source = source;
+		this.width = width;
+		this.height = height;
+		this.horizontalOffset = (width - source.getWidth()) / ImageProcessor.HALF_DIVISOR;
+		this.verticalOffset = (height - source.getHeight()) / ImageProcessor.HALF_DIVISOR;
+	}
+
+	/**
+	 * Returns the unpadded source image.
+	 *
+	 * @return the source image
+	 */
+	public Image getSource() {
+		return source;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the column at which the source image starts within the padded view.
+	 *
+	 * @return the horizontal offset
+	 */
+	public int getHorizontalOffset() {
+		return horizontalOffset;
+	}
+
+	/**
+	 * Returns the row at which the source image starts within the padded view.
+	 *
+	 * @return the vertical offset
+	 */
+	public int getVerticalOffset() {
+		return verticalOffset;
+	}
+
+	/**
+	 * Returns the packed ARGB value of a pixel of the padded view.
+	 *
+	 * @param row the pixel row
+	 * @param col the pixel column
+	 * @return the source pixel, or white for padding
+	 */
+	public int getRGB(int row, int col) {
+		int sourceRow = row - verticalOffset;
+		int sourceCol = col - horizontalOffset;
+		if (sourceRow < 0 || sourceRow >= source.getHeight() ||
+				sourceCol < 0 || sourceCol >= source.getWidth()) {
+			return ImageProcessor.WHITE_RGB;
+		}
+		return source.getRGB(sourceRow, sourceCol);
+	}
+}
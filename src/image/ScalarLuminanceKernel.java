@@ -0,0 +1,24 @@
+package image;
+
+/**
+ * The portable, one-pixel-at-a-time {@link LuminanceKernel}.
+ *
+ * @author Eyal and Dana
+ */
+class ScalarLuminanceKernel extends LuminanceKernel {
+	@Override
+	void scaledLuminance(int[] pixels, int offset, int length, int[] dest) {
+		for (int i = 0; i < length; i++) {
+			dest[i] = (int) IntegralImage.scaledLuminance(pixels[offset + i]);
+		}
+	}
+
+	@Override
+	long scaledLuminanceSum(int[] pixels, int offset, int length) {
+		long sum = 0;
+		for (int index = offset; index < offset + length; index++) {
+			sum += IntegralImage.scaledLuminance(pixels[index]);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,38 @@
+package image;
+
+/**
+ * A source of per-tile average brightness for a grid of square-ish tiles over an image,
+ * at any resolution it supports.
+ *
+ * @author Eyal and Dana
+ */
+public interface TileBrightnessSource {
+	/**
+	 * Returns the number of tile rows at the given resolution.
+	 *
+	 * @param tilesPerRow the resolution (number of tiles per row)
+	 * @return the number of tile rows
+	 */
+	int getRows(int tilesPerRow);
+
+	/**
+	 * Returns the row-major average brightness of every tile at the given resolution.
+	 * The returned array must not be modified.
+	 *
+	 * @param tilesPerRow the resolution (number of tiles per row)
+	 * @return the tile brightness values, of length {@code getRows(tilesPerRow) * tilesPerRow}
+	 */
+	double[] getTileBrightness(int tilesPerRow);
+
+	/**
+	 * Writes the row-major average brightness of a range of tile rows at the given resolution
+	 * into {@code dest}. Unlike {@link #getTileBrightness(int)}, the full resolution is not
+	 * kept: memory is only the caller's buffer, unless the resolution is already cached.
+	 *
+	 * @param tilesPerRow the resolution (number of tiles per row)
+	 * @param fromRow     the first tile row, inclusive
+	 * @param toRow       the last tile row, exclusive
+	 * @param dest        the buffer to fill, of length at least {@code (toRow - fromRow) * tilesPerRow}
+	 */
+	void getTileBrightness(int tilesPerRow, int fromRow, int toRow, double[] dest);
+}
@@ -0,0 +1,88 @@
+package image;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tile brightness at any integer resolution over the original, unpadded image.
+ * <p>
+ * Tiles are as close to square as the pixel grid allows: tile boundaries are the integer
+ * parts of evenly spaced fractional positions, so tiles differ in size by at most one
+ * pixel and every pixel belongs to exactly one tile. Each tile's average is weighted by its
+ * own area and read in O(1) from an {@link IntegralImage}, so a resolution costs O(tiles)
+ * and no padding is involved.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class UnpaddedTileGrid implements TileBrightnessSource {
+	private static final int MIN_ROWS = 1;
+
+	private final IntegralImage integralImage;
+	private final Map<Integer, double[]> levels = new HashMap<>();
+
+	/**
+	 * Constructs a grid over the source image of the given integral image. If the integral
+	 * image was built over a padded view, the padding is ignored.
+	 *
+	 * @param integralImage the integral image to read tile sums from
+	 */
+	public UnpaddedTileGrid(IntegralImage integralImage) {
+		this.integralImage = integralImage;
+	}
+
+	@Override
+	public int getRows(int tilesPerRow) {
+		return ImageProcessor.tileRows(integralImage.getSourceWidth(),
+				integralImage.getSourceHeight(), tilesPerRow);
+	}
+
+	@Override
+	public synchronized double[] getTileBrightness(int tilesPerRow) {
+		return levels.computeIfAbsent(tilesPerRow, this::computeLevel);
+	}
+
+	@Override
+	public void getTileBrightness(int tilesPerRow, int fromRow, int toRow, double[] dest) {
+		double[] level;
+		synchronized (this) {
+			level = levels.get(tilesPerRow);
+		}
+		if (level != null) {
+			System.arraycopy(level, fromRow * tilesPerRow, dest, 0, (toRow - fromRow) * tilesPerRow);
+		} else {
+			computeRows(tilesPerRow, fromRow, toRow, dest);
+		}
+	}
+
+	/**
+	 * Computes the area-weighted brightness of every tile at the given resolution.
+	 */
+	private double[] computeLevel(int tilesPerRow) {
+		int rows = getRows(tilesPerRow);
+		double[] brightness = new double[rows * tilesPerRow];
+		computeRows(tilesPerRow, 0, rows, brightness);
+		return brightness;
+	}
+
+	/**
+	 * Computes the area-weighted brightness of the tiles in a range of rows into a buffer.
+	 */
+	private void computeRows(int tilesPerRow, int fromRow, int toRow, double[] dest) {
+		int width = integralImage.getSourceWidth();
+		int height = integralImage.getSourceHeight();
+		int rows = getRows(tilesPerRow);
+		int rowOffset = integralImage.getVerticalOffset();
+		int colOffset = integralImage.getHorizontalOffset();
+		for (int i = fromRow; i < toRow; i++) {
+			int top = ImageProcessor.tileBoundary(height, rows, i);
+			int tileHeight = ImageProcessor.tileBoundary(height, rows, i + 1) - top;
+			for (int j = 0; j < tilesPerRow; j++) {
+				int left = ImageProcessor.tileBoundary(width, tilesPerRow, j);
+				int tileWidth = ImageProcessor.tileBoundary(width, tilesPerRow, j + 1) - left;
+				dest[(i - fromRow) * tilesPerRow + j] = integralImage.averageBrightness(
+						top + rowOffset, left + colOffset, tileWidth, tileHeight);
+			}
+		}
+	}
+}
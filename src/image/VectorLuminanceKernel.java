@@ -0,0 +1,71 @@
+package image;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A SIMD {@link LuminanceKernel} on the incubating Vector API, processing as many pixels per
+ * step as the platform's preferred integer vector holds (8 on AVX2, 16 on AVX-512).
+ * <p>
+ * A pixel's scaled luminance is at most 2,550,000, so it fits an {@code int} lane. Sums are
+ * accumulated lane-wise in {@code int} over blocks of at most {@link #FLUSH_PIXELS} pixels,
+ * whose total stays below {@code Integer.MAX_VALUE} even when the lane reduction itself is
+ * done in {@code int}, before being added into a {@code long}.
+ * </p>
+ * <p>
+ * This class is only loaded reflectively by {@link LuminanceKernel} once the
+ * {@code jdk.incubator.vector} module is known to be resolved.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+class VectorLuminanceKernel extends LuminanceKernel {
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	static final int FLUSH_PIXELS = 512;
+
+	@Override
+	void scaledLuminance(int[] pixels, int offset, int length, int[] dest) {
+		int i = 0;
+		int bound = SPECIES.loopBound(length);
+		for (; i < bound; i += SPECIES.length()) {
+			luminance(IntVector.fromArray(SPECIES, pixels, offset + i)).intoArray(dest, i);
+		}
+		for (; i < length; i++) {
+			dest[i] = (int) IntegralImage.scaledLuminance(pixels[offset + i]);
+		}
+	}
+
+	@Override
+	long scaledLuminanceSum(int[] pixels, int offset, int length) {
+		long sum = 0;
+		int i = 0;
+		int bound = SPECIES.loopBound(length);
+		while (i < bound) {
+			int blockEnd = Math.min(bound, i + Math.max(FLUSH_PIXELS, SPECIES.length()));
+			IntVector acc = IntVector.zero(SPECIES);
+			for (; i < blockEnd; i += SPECIES.length()) {
+				acc = acc.add(luminance(IntVector.fromArray(SPECIES, pixels, offset + i)));
+			}
+			sum += acc.reduceLanesToLong(VectorOperators.ADD);
+		}
+		for (; i < length; i++) {
+			sum += IntegralImage.scaledLuminance(pixels[offset + i]);
+		}
+		return sum;
+	}
+
+	/**
+	 * Computes the scaled luminance of every lane of packed ARGB pixels.
+	 */
+	private static IntVector luminance(IntVector rgb) {
+		IntVector red = rgb.lanewise(VectorOperators.LSHR, ImageProcessor.RED_SHIFT)
+				.and(ImageProcessor.CHANNEL_MASK);
+		IntVector green = rgb.lanewise(VectorOperators.LSHR, ImageProcessor.GREEN_SHIFT)
+				.and(ImageProcessor.CHANNEL_MASK);
+		IntVector blue = rgb.and(ImageProcessor.CHANNEL_MASK);
+		return red.mul(IntegralImage.RED_WEIGHT)
+				.add(green.mul(IntegralImage.GREEN_WEIGHT))
+				.add(blue.mul(IntegralImage.BLUE_WEIGHT));
+	}
+}
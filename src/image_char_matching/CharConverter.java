@@ -14,7 +14,7 @@ import java.awt.image.BufferedImage;
 public class CharConverter {
 	private static final double X_OFFSET_FACTOR = 0.2;
 	private static final double Y_OFFSET_FACTOR = 0.75;
-	private static final String FONT_NAME = "Courier New";
+	public static final String FONT_NAME = "Courier New";
 	public static final int DEFAULT_PIXEL_RESOLUTION = 16;
 
 	/**
@@ -23,10 +23,18 @@ public class CharConverter {
 	 * whose dimension in pixels is specified.
 	 */
 	public static boolean[][] convertToBoolArray(char c) {
-		BufferedImage img = getBufferedImage(c, FONT_NAME, DEFAULT_PIXEL_RESOLUTION);
-		boolean[][] matrix = new boolean[DEFAULT_PIXEL_RESOLUTION][DEFAULT_PIXEL_RESOLUTION];
-		for (int y = 0; y < DEFAULT_PIXEL_RESOLUTION; y++) {
-			for (int x = 0; x < DEFAULT_PIXEL_RESOLUTION; x++) {
+		return convertToBoolArray(c, FONT_NAME, DEFAULT_PIXEL_RESOLUTION);
+	}
+
+	/**
+	 * Renders a given character in the given font to a square black&white image
+	 * (2D array of booleans) of the given dimension in pixels.
+	 */
+	public static boolean[][] convertToBoolArray(char c, String fontName, int pixelResolution) {
+		BufferedImage img = getBufferedImage(c, fontName, pixelResolution);
+		boolean[][] matrix = new boolean[pixelResolution][pixelResolution];
+		for (int y = 0; y < pixelResolution; y++) {
+			for (int x = 0; x < pixelResolution; x++) {
 				matrix[y][x] = img.getRGB(x, y) == 0; //is the color white
 			}
 		}
@@ -0,0 +1,157 @@
+package image_char_matching;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide cache of raw glyph brightness values, keyed by font name,
+ * pixel resolution and character.
+ * <p>
+ * Rendering a glyph through {@link CharConverter} creates a font, an image and a graphics
+ * context, so each glyph is rendered at most once per JVM. The cache can also be saved to
+ * and loaded from a small binary file, letting a warm start skip AWT rendering entirely.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+public class GlyphBrightnessCache {
+	private static final int FILE_MAGIC = 0x474C5946; // "GLYF"
+	private static final int FILE_VERSION = 1;
+	private static final String INCORRECT_FILE_MSG = "Not a glyph brightness cache file: ";
+	private static final String TRUNCATED_FILE_MSG = "Truncated glyph brightness cache file: ";
+
+	private static final Map<GlyphKey, Double> cache = new ConcurrentHashMap<>();
+
+	// Private constructor to prevent instantiation
+	private GlyphBrightnessCache() {
+	}
+
+	/**
+	 * Returns the raw brightness of a character in the default font and resolution.
+	 *
+	 * @param c the character
+	 * @return the fraction of the glyph's pixels that are set, in [0,1]
+	 */
+	public static double getBrightness(char c) {
+		return getBrightness(CharConverter.FONT_NAME, CharConverter.DEFAULT_PIXEL_RESOLUTION, c);
+	}
+
+	/**
+	 * Returns the raw brightness of a character, rendering it only on the first request.
+	 *
+	 * @param fontName        the font to render the character in
+	 * @param pixelResolution the side length, in pixels, of the rendered glyph
+	 * @param c               the character
+	 * @return the fraction of the glyph's pixels that are set, in [0,1]
+	 */
+	public static double getBrightness(String fontName, int pixelResolution, char c) {
+		return cache.computeIfAbsent(new GlyphKey(fontName, pixelResolution, c),
+				key -> renderBrightness(key.fontName, key.pixelResolution, key.c));
+	}
+
+	/**
+	 * Loads cached values from a file previously written by {@link #save(String)},
+	 * adding them to the values already in memory. Nothing is added unless the whole file
+	 * is read successfully.
+	 *
+	 * @param filename the file to read
+	 * @throws IOException if the file cannot be read, is not a glyph cache file or is truncated
+	 */
+	public static void load(String filename) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(filename)))) {
+			if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+				throw new IOException(INCORRECT_FILE_MSG + filename);
+			}
+			int count = in.readInt();
+			Map<GlyphKey, Double> loaded = new HashMap<>();
+			for (int i = 0; i < count; i++) {
+				String fontName = in.readUTF();
+				int pixelResolution = in.readInt();
+				char c = in.readChar();
+				loaded.put(new GlyphKey(fontName, pixelResolution, c), in.readDouble());
+			}
+			cache.putAll(loaded);
+		} catch (EOFException e) {
+			throw new IOException(TRUNCATED_FILE_MSG + filename, e);
+		}
+	}
+
+	/**
+	 * Saves every cached value to a binary file.
+	 *
+	 * @param filename the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(String filename) throws IOException {
+		Map<GlyphKey, Double> snapshot = Map.copyOf(cache);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(filename)))) {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeInt(snapshot.size());
+			for (Map.Entry<GlyphKey, Double> entry : snapshot.entrySet()) {
+				out.writeUTF(entry.getKey().fontName);
+				out.writeInt(entry.getKey().pixelResolution);
+				out.writeChar(entry.getKey().c);
+				out.writeDouble(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Renders a character and counts the fraction of its pixels that are set.
+	 */
+	private static double renderBrightness(String fontName, int pixelResolution, char c) {
+		boolean[][] charToBool = CharConverter.convertToBoolArray(c, fontName, pixelResolution);
+		int trueCounter = 0;
+		for (int i = 0; i < charToBool.length; i++) {
+			for (int j = 0; j < charToBool[i].length; j++) {
+				if (charToBool[i][j]) {
+					trueCounter++;
+				}
+			}
+		}
+		return (double) trueCounter / (pixelResolution * pixelResolution);
+	}
+
+	/**
+	 * The cache key: a character rendered in a given font at a given resolution.
+	 */
+	private static class GlyphKey {
+		private final String fontName;
+		private final int pixelResolution;
+		private final char c;
+
+		GlyphKey(String fontName, int pixelResolution, char c) {
+			this.fontName = fontName;
+			this.pixelResolution = pixelResolution;
+			this.c = c;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof GlyphKey)) {
+				return false;
+			}
+			GlyphKey other = (GlyphKey) o;
+			return pixelResolution == other.pixelResolution && c == other.c &&
+					fontName.equals(other.fontName);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(fontName, pixelResolution, c);
+		}
+	}
+}
@@ -13,18 +13,15 @@ package image_char_matching;
  */
 public enum RoundingMode {
 	/**
-	 * Rounds the value to the nearest integer using standard rounding.
-	 * Example: 2.5 → 3, 2.4 → 2
+	 * Rounds up: picks the closest character whose brightness is at least the value.
 	 */
 	UP {},
 	/**
-	 * Rounds the value to the nearest integer using standard rounding.
-	 * Example: 2.5 → 3, 2.4 → 2
+	 * Rounds down: picks the closest character whose brightness is at most the value.
 	 */
 	DOWN {},
 	/**
-	 * Rounds the value to the nearest integer using standard rounding.
-	 * Example: 2.5 → 3, 2.4 → 2
+	 * Picks the character whose brightness is closest to the value in absolute difference.
 	 */
 	NEAREST {};
 }
\ No newline at end of file
@@ -11,28 +11,35 @@ import java.util.*;
  * </p>
  *
  * <p>
- * Internally, it computes the brightness of each character in the given set,
- * normalizes the values to [0,1], and allows retrieving the closest character
- * for a given brightness level using a configurable rounding mode.
+ * Internally, it reads the brightness of each character in the given set from the
+ * {@link GlyphBrightnessCache}, normalizes the values to [0,1], and allows retrieving
+ * the closest character for a given brightness level using a configurable rounding mode.
+ * </p>
+ *
+ * <p>
+ * Normalized brightnesses are kept in a sorted primitive {@code double[]} with a parallel
+ * {@code char[]}, so each lookup is a binary search. Characters sharing a brightness are
+ * collapsed to the one with the lowest char code, which is the one a lookup would return.
  * </p>
  *
  * <p>
  * Supports dynamically adding and removing characters, and automatically
- * recomputes brightness normalization when the set changes.
+ * recomputes brightness normalization when the set changes. The bulk
+ * {@link #addChars(char[])} and {@link #removeChars(char[])} normalize only once per call.
  *
  * @author Eyal and Dana
  */
 
 public class SubImgCharMatcher {
-	private static final int NUM_SIZE_BOOL_ARR = 16 * 16;
 	private static final int MIN_VAL_ZERO = 0;
 	private static final char SPACE_CHAR = ' ';
 
-	private RoundingMode roundingMode;
+	private RoundingMode roundingMode = RoundingMode.NEAREST;
 	private double minBrightness;
 	private double maxBrightness;
-	private Map<Character, Double> brightnessMap = new HashMap<>();
-	private final List<Character> charset = new ArrayList<>();
+	private final Map<Character, Double> brightnessMap = new HashMap<>();
+	private double[] sortedBrightness = new double[MIN_VAL_ZERO];
+	private char[] sortedChars = new char[MIN_VAL_ZERO];
 
 	/**
 	 * Constructs a SubImgCharMatcher from a given array of characters.
@@ -42,21 +49,15 @@ public class SubImgCharMatcher {
 	 */
 	public SubImgCharMatcher(char[] charset) {
 		for (char c : charset) {
-			this.charset.add(c);
-			this.brightnessMap.put(c, calcBrightness(c));
+			this.brightnessMap.put(c, GlyphBrightnessCache.getBrightness(c));
 		}
 		normalizingBrightness();
-		this.minBrightness = Collections.min(this.brightnessMap.values());
-		this.maxBrightness = Collections.max(this.brightnessMap.values());
-		this.charset.sort(
-				Comparator.comparingDouble(brightnessMap::get)
-		);
 	}
 
 	/**
 	 * Sets the rounding mode to use when mapping brightness to character index.
 	 *
-	 * @param mode the rounding mode (e.g., RoundingMode.HALF_UP)
+	 * @param mode the rounding mode (e.g., RoundingMode.NEAREST)
 	 */
 	public void setRoundingMode(RoundingMode mode) {
 		this.roundingMode = mode;
@@ -83,40 +84,52 @@ public class SubImgCharMatcher {
 	 * @return the best-matching character
 	 */
 	public char getCharByImageBrightness(double brightness) {
-		double closestBrihtness = Double.MAX_VALUE;
-		char bestChar = SPACE_CHAR;
-		for (Map.Entry<Character, Double> entry : brightnessMap.entrySet()) {
-			switch (getRoundingMode()) {
-				case NEAREST: {
-					double diff = Math.abs(entry.getValue() - brightness);
-					if (diff < closestBrihtness) {
-						closestBrihtness = diff;
-						bestChar = entry.getKey();
-					} else if (diff == closestBrihtness && entry.getKey() < bestChar) {
-						bestChar = entry.getKey();
-					}
+		int ceiling = ceilingIndex(brightness);
+		int floor = ceiling < sortedBrightness.length && sortedBrightness[ceiling] == brightness ?
+				ceiling : ceiling - 1;
+		switch (getRoundingMode()) {
+			case UP:
+				return ceiling < sortedBrightness.length ? sortedChars[ceiling] : SPACE_CHAR;
+			case DOWN:
+				return floor >= MIN_VAL_ZERO ? sortedChars[floor] : SPACE_CHAR;
+			case NEAREST:
+			default:
+				if (ceiling >= sortedBrightness.length) {
+					return floor >= MIN_VAL_ZERO ? sortedChars[floor] : SPACE_CHAR;
 				}
-				case UP: {
-					double diff = entry.getValue() - brightness;
-					if (diff >= MIN_VAL_ZERO && diff < closestBrihtness) {
-						closestBrihtness = diff;
-						bestChar = entry.getKey();
-					} else if (diff == closestBrihtness && entry.getKey() < bestChar) {
-						bestChar = entry.getKey();
-					}
+				if (floor < MIN_VAL_ZERO) {
+					return sortedChars[ceiling];
 				}
-				case DOWN: {
-					double diff = brightness - entry.getValue();
-					if (diff >= MIN_VAL_ZERO && diff < closestBrihtness) {
-						closestBrihtness = diff;
-						bestChar = entry.getKey();
-					} else if (diff == closestBrihtness && entry.getKey() < bestChar) {
-						bestChar = entry.getKey();
-					}
+				double diffDown = brightness - sortedBrightness[floor];
+				double diffUp = sortedBrightness[ceiling] - brightness;
+				if (diffDown < diffUp) {
+					return sortedChars[floor];
+				} else if (diffUp < diffDown) {
+					return sortedChars[ceiling];
 				}
+				return (char) Math.min(sortedChars[floor], sortedChars[ceiling]);
+		}
+	}
+
+	/**
+	 * Binary searches the sorted brightness values.
+	 *
+	 * @param brightness the brightness to search for
+	 * @return the index of the first value that is {@code >= brightness},
+	 * or the number of values if there is none
+	 */
+	private int ceilingIndex(double brightness) {
+		int low = MIN_VAL_ZERO;
+		int high = sortedBrightness.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedBrightness[mid] < brightness) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
-			return bestChar;
+		return low;
 	}
 
 
@@ -126,8 +139,7 @@ public class SubImgCharMatcher {
 	 * @param c the character to add
 	 */
 	public void addChar(char c) {
-		this.charset.add(Character.valueOf(c));
-		this.brightnessMap.put(c, calcBrightness(c));
+		this.brightnessMap.put(c, GlyphBrightnessCache.getBrightness(c));
 		normalizingBrightness();
 	}
 
@@ -138,50 +150,69 @@ public class SubImgCharMatcher {
 	 * @param c the character to remove
 	 */
 	public void removeChar(char c) {
-		this.charset.remove(Character.valueOf(c));
 		this.brightnessMap.remove(c);
 		normalizingBrightness();
 	}
 
 	/**
-	 * Calculates the brightness of a character by converting it to a boolean matrix
-	 * and counting the number of pixels set to {@code true}.
+	 * Adds several characters to the set, normalizing the brightness values only once.
 	 *
-	 * @param c the character to compute brightness for
-	 * @return the normalized brightness value in [0,1]
+	 * @param chars the characters to add
 	 */
-	private double calcBrightness(char c) {
-		boolean[][] charToBool = CharConverter.convertToBoolArray(c);
-		int trueCounter = MIN_VAL_ZERO;
-		for (int i = 0; i < charToBool.length; i++) {
-			for (int j = 0; j < charToBool[i].length; j++) {
-				if (charToBool[i][j]) {
-					trueCounter++;
-				}
-			}
+	public void addChars(char[] chars) {
+		for (char c : chars) {
+			this.brightnessMap.put(c, GlyphBrightnessCache.getBrightness(c));
+		}
+		normalizingBrightness();
+	}
+
+	/**
+	 * Removes several characters from the set, normalizing the brightness values only once.
+	 *
+	 * @param chars the characters to remove
+	 */
+	public void removeChars(char[] chars) {
+		for (char c : chars) {
+			this.brightnessMap.remove(c);
 		}
-		return (double) trueCounter / NUM_SIZE_BOOL_ARR;
+		normalizingBrightness();
 	}
 
 	/**
 	 * Normalizes the brightness values of all characters in the set
-	 * so that they fall within the range [0,1].
+	 * so that they fall within the range [0,1], and rebuilds the sorted lookup arrays.
+	 * The raw brightness values in the map are left untouched.
 	 * This method is called after adding or removing characters.
 	 */
 	private void normalizingBrightness() {
 		if (brightnessMap.isEmpty()) {
+			this.sortedBrightness = new double[MIN_VAL_ZERO];
+			this.sortedChars = new char[MIN_VAL_ZERO];
 			return; // Nothing to normalize
 		}
 		this.minBrightness = Collections.min(this.brightnessMap.values());
 		this.maxBrightness = Collections.max(this.brightnessMap.values());
-		double maxMinusMin = this.maxBrightness- this.minBrightness;
-
-		TreeMap<Character, Double> normalizedMap = new TreeMap<>();
-
-		for (Map.Entry<Character, Double> entry : brightnessMap.entrySet()) {
-			double newVal = (entry.getValue() - this.minBrightness) / maxMinusMin;
-			normalizedMap.put(entry.getKey(), newVal);
+		double maxMinusMin = this.maxBrightness - this.minBrightness;
+
+		// Sort by normalized brightness, breaking ties by the lowest char code
+		List<Character> chars = new ArrayList<>(brightnessMap.keySet());
+		chars.sort(Comparator.comparingDouble((Character c) -> brightnessMap.get(c))
+				.thenComparing(Comparator.naturalOrder()));
+
+		double[] values = new double[chars.size()];
+		char[] keys = new char[chars.size()];
+		int size = MIN_VAL_ZERO;
+		for (char c : chars) {
+			double newVal = maxMinusMin == MIN_VAL_ZERO ? MIN_VAL_ZERO :
+					(brightnessMap.get(c) - this.minBrightness) / maxMinusMin;
+			// Only the lowest char of a run of equal brightness can ever be returned
+			if (size == MIN_VAL_ZERO || values[size - 1] != newVal) {
+				values[size] = newVal;
+				keys[size] = c;
+				size++;
+			}
 		}
-		this.brightnessMap = normalizedMap;
+		this.sortedBrightness = Arrays.copyOf(values, size);
+		this.sortedChars = Arrays.copyOf(keys, size);
 	}
 }
@@ -0,0 +1,137 @@
+package ascii_art;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link Shell#runScript} leaves the same matcher state and HTML output as typing
+ * the same commands one by one, although it merges runs of "add" and "remove" into one matcher
+ * update and skips renders that a later "asciiArt" overwrites.
+ * <p>
+ * The interactive shell reads the commands from {@link System#in}, which {@link KeyboardInput}
+ * captures on first use, so this is the only test that may drive {@link Shell#run}. The HTML
+ * file is written to the working directory, which the build sets to {@code target/}.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+class ShellScriptTest {
+	private static final List<String> COMMANDS = List.of(
+			"output html",
+			"add a-e",
+			"remove 0-4",
+			"add z",
+			"remove a",
+			"asciiArt",
+			"res up",
+			"res up",
+			"asciiArt",
+			"round up",
+			"asciiArt",
+			"add 5",
+			"remove 5",
+			"remove z",
+			"add y",
+			"asciiArt");
+	private static final String SUMMARY = "(6 matcher updates merged, 2 overwritten renders skipped)";
+	private static final String EXIT = "exit";
+	private static final String OUTPUT_FILE = "output.html";
+	private static final int IMAGE_WIDTH = 96;
+	private static final int IMAGE_HEIGHT = 64;
+	private static final int BRIGHTNESS_STEPS = 4096;
+	private static final long SEED = 0x5EEDL;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void scriptMatchesCommandsRunOneByOne() throws IOException {
+		String image = writeImage().getPath();
+		Path output = Paths.get(OUTPUT_FILE);
+
+		Files.deleteIfExists(output);
+		Shell scripted = new Shell();
+		String scriptLog = captureOutput(() -> scripted.runScript(image, COMMANDS));
+		assertTrue(scriptLog.contains(SUMMARY), scriptLog);
+		byte[] scriptedHtml = Files.readAllBytes(output);
+
+		Files.deleteIfExists(output);
+		Shell interactive = new Shell();
+		String commands = String.join("\n", COMMANDS) + "\n" + EXIT + "\n";
+		InputStream stdin = System.in;
+		System.setIn(new ByteArrayInputStream(commands.getBytes(StandardCharsets.UTF_8)));
+		try {
+			captureOutput(() -> interactive.run(image));
+		} finally {
+			System.setIn(stdin);
+		}
+		byte[] interactiveHtml = Files.readAllBytes(output);
+		Files.deleteIfExists(output);
+
+		assertArrayEquals(interactiveHtml, scriptedHtml);
+		assertEquals(interactive.charset, scripted.charset);
+		assertEquals(interactive.res, scripted.res);
+		assertEquals(interactive.matcher.getRoundingMode(), scripted.matcher.getRoundingMode());
+		for (int i = 0; i <= BRIGHTNESS_STEPS; i++) {
+			double brightness = (double) i / BRIGHTNESS_STEPS;
+			assertEquals(interactive.matcher.getCharByImageBrightness(brightness),
+					scripted.matcher.getCharByImageBrightness(brightness), "brightness " + brightness);
+		}
+	}
+
+	/**
+	 * Writes a gradient with noise, so that every char of the charset is likely to be used.
+	 */
+	private File writeImage() throws IOException {
+		Random random = new Random(SEED);
+		BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		for (int row = 0; row < IMAGE_HEIGHT; row++) {
+			for (int col = 0; col < IMAGE_WIDTH; col++) {
+				int gray = Math.min(255, (row + col) * 255 / (IMAGE_WIDTH + IMAGE_HEIGHT) +
+						random.nextInt(16));
+				image.setRGB(col, row, gray << 16 | gray << 8 | gray);
+			}
+		}
+		File file = tempDir.resolve("gradient.png").toFile();
+		ImageIO.write(image, "png", file);
+		return file;
+	}
+
+	/**
+	 * Runs an action with the standard output captured, and returns what it printed.
+	 */
+	private static String captureOutput(ShellAction action) throws IOException {
+		PrintStream stdout = System.out;
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+		try {
+			action.run();
+		} finally {
+			System.setOut(stdout);
+		}
+		return captured.toString(StandardCharsets.UTF_8);
+	}
+
+	private interface ShellAction {
+		void run() throws IOException;
+	}
+}
@@ -0,0 +1,78 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that an {@link IntegralImage} over a virtually padded image gives the same sums as
+ * one over the image padded with {@link ImageProcessor#padToPowerOfTwo}.
+ * <p>
+ * Sizes include widths and heights of 1, odd padding on either axis, and sizes that are
+ * already powers of two. Rectangles are random within the padded bounds, so they lie wholly
+ * in the padding, wholly in the source, or straddle its edges.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+class IntegralImageTest {
+	private static final long SEED = 0x5EEDL;
+	private static final int[][] SIZES = {
+			{1, 1}, {1, 9}, {9, 1}, {3, 5}, {17, 6}, {6, 17}, {31, 33}, {64, 40}, {32, 64}, {100, 37}
+	};
+	private static final int RECTANGLES_PER_SIZE = 5000;
+
+	private final Random random = new Random(SEED);
+
+	@Test
+	void virtualPaddingMatchesMaterializedRectangleSums() {
+		for (int[] size : SIZES) {
+			Image image = randomImage(size[0], size[1]);
+			IntegralImage virtual = new IntegralImage(ImageProcessor.padVirtually(image));
+			IntegralImage materialized = new IntegralImage(ImageProcessor.padToPowerOfTwo(image));
+			assertEquals(materialized.getWidth(), virtual.getWidth());
+			assertEquals(materialized.getHeight(), virtual.getHeight());
+			for (int i = 0; i < RECTANGLES_PER_SIZE; i++) {
+				int row = random.nextInt(virtual.getHeight());
+				int col = random.nextInt(virtual.getWidth());
+				int rectHeight = 1 + random.nextInt(virtual.getHeight() - row);
+				int rectWidth = 1 + random.nextInt(virtual.getWidth() - col);
+				assertEquals(materialized.rectangleSum(row, col, rectWidth, rectHeight),
+						virtual.rectangleSum(row, col, rectWidth, rectHeight),
+						size[0] + "x" + size[1] + " at " + row + "," + col + " size " +
+								rectWidth + "x" + rectHeight);
+			}
+		}
+	}
+
+	@Test
+	void virtualPaddingMatchesMaterializedPyramidLevels() {
+		for (int[] size : SIZES) {
+			Image image = randomImage(size[0], size[1]);
+			BrightnessPyramid virtual =
+					new BrightnessPyramid(new IntegralImage(ImageProcessor.padVirtually(image)));
+			BrightnessPyramid materialized =
+					new BrightnessPyramid(new IntegralImage(ImageProcessor.padToPowerOfTwo(image)));
+			int width = ImageProcessor.nextPowerOfTwo(size[0]);
+			for (int tilesPerRow = 1; tilesPerRow <= width; tilesPerRow *= 2) {
+				assertArrayEquals(materialized.getTileBrightness(tilesPerRow),
+						virtual.getTileBrightness(tilesPerRow),
+						size[0] + "x" + size[1] + " at " + tilesPerRow + " tiles per row");
+			}
+		}
+	}
+
+	/**
+	 * Returns an image of random opaque pixels.
+	 */
+	private Image randomImage(int width, int height) {
+		int[] pixels = new int[width * height];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xFF000000 | random.nextInt();
+		}
+		return new Image(pixels, width, height);
+	}
+}
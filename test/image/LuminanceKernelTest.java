@@ -0,0 +1,91 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link VectorLuminanceKernel} computes the same luminance as
+ * {@link ScalarLuminanceKernel} over random runs of pixels.
+ * <p>
+ * Both kernels work in integers and promise identical results, so values are compared exactly.
+ * Runs cover tails shorter than one vector, lengths around the vector width and
+ * {@link VectorLuminanceKernel#FLUSH_PIXELS}, and runs of several flush blocks, all at
+ * random offsets so vector loads are not aligned to the array start.
+ * </p>
+ *
+ * @author Eyal and Dana
+ */
+class LuminanceKernelTest {
+	private static final long SEED = 0x5EEDL;
+	private static final int RANDOM_RUNS = 2000;
+	private static final int MAX_OFFSET = 64;
+	private static final int MAX_LENGTH = VectorLuminanceKernel.FLUSH_PIXELS * 5;
+	private static final int MAX_VECTOR_LANES = 64;
+	private static final int WHITE = 0xFFFFFFFF;
+
+	private final LuminanceKernel scalar = new ScalarLuminanceKernel();
+	private final LuminanceKernel vector = new VectorLuminanceKernel();
+	private final Random random = new Random(SEED);
+
+	@Test
+	void shortTailsMatchScalar() {
+		for (int length = 0; length < MAX_VECTOR_LANES; length++) {
+			assertKernelsAgree(randomPixels(MAX_OFFSET + length), random.nextInt(MAX_OFFSET), length);
+		}
+	}
+
+	@Test
+	void lengthsAroundFlushBlockMatchScalar() {
+		int flush = VectorLuminanceKernel.FLUSH_PIXELS;
+		for (int length = flush - MAX_VECTOR_LANES; length <= flush + MAX_VECTOR_LANES; length++) {
+			assertKernelsAgree(randomPixels(MAX_OFFSET + length), random.nextInt(MAX_OFFSET), length);
+		}
+	}
+
+	@Test
+	void randomRunsMatchScalar() {
+		int[] pixels = randomPixels(MAX_OFFSET + MAX_LENGTH);
+		for (int run = 0; run < RANDOM_RUNS; run++) {
+			assertKernelsAgree(pixels, random.nextInt(MAX_OFFSET), random.nextInt(MAX_LENGTH + 1));
+		}
+	}
+
+	@Test
+	void longWhiteRunDoesNotOverflow() {
+		int[] pixels = new int[MAX_OFFSET + MAX_LENGTH];
+		Arrays.fill(pixels, WHITE);
+		assertKernelsAgree(pixels, 1, MAX_LENGTH);
+		assertEquals(MAX_LENGTH * IntegralImage.scaledLuminance(WHITE),
+				vector.scaledLuminanceSum(pixels, 1, MAX_LENGTH));
+	}
+
+	/**
+	 * Asserts that both kernels compute the same per-pixel luminance and sum for a run.
+	 */
+	private void assertKernelsAgree(int[] pixels, int offset, int length) {
+		int[] expected = new int[length];
+		int[] actual = new int[length];
+		scalar.scaledLuminance(pixels, offset, length, expected);
+		vector.scaledLuminance(pixels, offset, length, actual);
+		String run = "offset " + offset + ", length " + length;
+		assertArrayEquals(expected, actual, run);
+		assertEquals(scalar.scaledLuminanceSum(pixels, offset, length),
+				vector.scaledLuminanceSum(pixels, offset, length), run);
+	}
+
+	/**
+	 * Returns random packed ARGB pixels, alpha included, since the kernels must ignore it.
+	 */
+	private int[] randomPixels(int count) {
+		int[] pixels = new int[count];
+		for (int i = 0; i < count; i++) {
+			pixels[i] = random.nextInt();
+		}
+		return pixels;
+	}
+}
@@ -0,0 +1,146 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the tiles of an {@link UnpaddedTileGrid} partition the source image: every pixel
+ * lies in exactly one tile at every resolution, with or without padding around the source.
+ *
+ * @author Eyal and Dana
+ */
+class UnpaddedTileGridTest {
+	private static final long SEED = 0x5EEDL;
+	private static final int[][] SIZES = {{1, 1}, {1, 7}, {7, 1}, {5, 3}, {13, 7}, {8, 8}, {10, 21}};
+	private static final int[][] LARGE_SIZES = {{97, 61}, {200, 33}, {64, 100}};
+	private static final int BLACK = 0xFF000000;
+	private static final int WHITE = 0xFFFFFFFF;
+	private static final double MAX_LUMA = IntegralImage.scaledLuminance(WHITE);
+	private static final double SUM_TOLERANCE = 1e-9;
+
+	private final Random random = new Random(SEED);
+
+	@Test
+	void everyPixelLiesInExactlyOneTile() {
+		for (int[] size : SIZES) {
+			int width = size[0];
+			int height = size[1];
+			for (int pixel = 0; pixel < width * height; pixel++) {
+				// A single white pixel on black lights up only the tile that contains it
+				int[] pixels = new int[width * height];
+				Arrays.fill(pixels, BLACK);
+				pixels[pixel] = WHITE;
+				Image image = new Image(pixels, width, height);
+				for (UnpaddedTileGrid grid : grids(image)) {
+					for (int tilesPerRow = 1; tilesPerRow <= width; tilesPerRow++) {
+						int rows = grid.getRows(tilesPerRow);
+						double[] brightness = grid.getTileBrightness(tilesPerRow);
+						int row = pixel / width;
+						int col = pixel % width;
+						int litTiles = 0;
+						for (int i = 0; i < rows; i++) {
+							for (int j = 0; j < tilesPerRow; j++) {
+								if (brightness[i * tilesPerRow + j] > 0) {
+									litTiles++;
+									assertEquals(1.0 / tileArea(width, height, rows, tilesPerRow, i, j),
+											brightness[i * tilesPerRow + j], SUM_TOLERANCE);
+									assertTrue(inTile(width, height, rows, tilesPerRow, i, j, row, col));
+								}
+							}
+						}
+						assertEquals(1, litTiles, width + "x" + height + ", pixel " + pixel +
+								", " + tilesPerRow + " tiles per row");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void tileAreasCoverTheImage() {
+		for (int[] size : LARGE_SIZES) {
+			int width = size[0];
+			int height = size[1];
+			int[] pixels = new int[width * height];
+			long total = 0;
+			for (int i = 0; i < pixels.length; i++) {
+				pixels[i] = BLACK | random.nextInt();
+				total += IntegralImage.scaledLuminance(pixels[i]);
+			}
+			Image image = new Image(pixels, width, height);
+			for (UnpaddedTileGrid grid : grids(image)) {
+				for (int tilesPerRow = 1; tilesPerRow <= width; tilesPerRow++) {
+					int rows = grid.getRows(tilesPerRow);
+					double[] brightness = grid.getTileBrightness(tilesPerRow);
+					double weighted = 0;
+					long area = 0;
+					for (int i = 0; i < rows; i++) {
+						for (int j = 0; j < tilesPerRow; j++) {
+							long tileArea = tileArea(width, height, rows, tilesPerRow, i, j);
+							assertTrue(tileArea > 0);
+							area += tileArea;
+							weighted += brightness[i * tilesPerRow + j] * tileArea;
+						}
+					}
+					assertEquals((long) width * height, area);
+					assertEquals(total / MAX_LUMA, weighted, total / MAX_LUMA * SUM_TOLERANCE);
+				}
+			}
+		}
+	}
+
+	@Test
+	void rowBandsMatchTheWholeLevel() {
+		int width = LARGE_SIZES[0][0];
+		int height = LARGE_SIZES[0][1];
+		int[] pixels = new int[width * height];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = BLACK | random.nextInt();
+		}
+		Image image = new Image(pixels, width, height);
+		for (int tilesPerRow = 1; tilesPerRow <= width; tilesPerRow += 7) {
+			UnpaddedTileGrid banded = new UnpaddedTileGrid(new IntegralImage(image));
+			double[] level = new UnpaddedTileGrid(new IntegralImage(image)).getTileBrightness(tilesPerRow);
+			int rows = banded.getRows(tilesPerRow);
+			int fromRow = random.nextInt(rows);
+			int toRow = fromRow + 1 + random.nextInt(rows - fromRow);
+			double[] band = new double[(toRow - fromRow) * tilesPerRow];
+			banded.getTileBrightness(tilesPerRow, fromRow, toRow, band);
+			assertArrayEquals(Arrays.copyOfRange(level, fromRow * tilesPerRow, toRow * tilesPerRow),
+					band);
+		}
+	}
+
+	/**
+	 * Returns grids over an image both as is and through a virtually padded view, whose
+	 * padding the grid must ignore.
+	 */
+	private static UnpaddedTileGrid[] grids(Image image) {
+		return new UnpaddedTileGrid[]{
+				new UnpaddedTileGrid(new IntegralImage(image)),
+				new UnpaddedTileGrid(new IntegralImage(ImageProcessor.padVirtually(image)))
+		};
+	}
+
+	private static long tileArea(int width, int height, int rows, int tilesPerRow, int i, int j) {
+		long tileHeight = ImageProcessor.tileBoundary(height, rows, i + 1) -
+				ImageProcessor.tileBoundary(height, rows, i);
+		long tileWidth = ImageProcessor.tileBoundary(width, tilesPerRow, j + 1) -
+				ImageProcessor.tileBoundary(width, tilesPerRow, j);
+		return tileHeight * tileWidth;
+	}
+
+	private static boolean inTile(int width, int height, int rows, int tilesPerRow, int i, int j,
+								  int row, int col) {
+		return row >= ImageProcessor.tileBoundary(height, rows, i) &&
+				row < ImageProcessor.tileBoundary(height, rows, i + 1) &&
+				col >= ImageProcessor.tileBoundary(width, tilesPerRow, j) &&
+				col < ImageProcessor.tileBoundary(width, tilesPerRow, j + 1);
+	}
+}